@@ -0,0 +1,33 @@
+/*
+ *
+ *   Copyright (c) 2016-2018 Red Hat, Inc.
+ *
+ *   Red Hat licenses this file to you under the Apache License, version
+ *   2.0 (the "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied.  See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+import io.reactiverse.vertx.maven.plugin.Verify
+
+String base = basedir
+File primaryArtifactFile = new File(base, "target/vertx-demo-pkg-streaming-0.0.1.BUILD-SNAPSHOT.jar")
+
+assert primaryArtifactFile.exists()
+Verify.verifyVertxJar(primaryArtifactFile)
+
+Verify.verifyContains(primaryArtifactFile, "misc/lorem-ipsum.txt")
+Verify.verifyNotContain(primaryArtifactFile, "Log4j-config.xsd")
+Verify.verifyNotContain(primaryArtifactFile, "Log4j-events.xsd")
+Verify.verifyNotContain(primaryArtifactFile, "Log4j-config.dtd")
+Verify.verifyNotContain(primaryArtifactFile, "Log4j-events.dtd")
+
+Verify.verifyContains(primaryArtifactFile,"META-INF/services/com.fasterxml.jackson.core.JsonFactory")
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The entries of the dependency archives, shared by the SPI combination and the packaging.
+ * <p>
+ * Each dependency is opened, and its central directory read, at most once, when first requested. The archives stay
+ * open until the index is closed, so the entries can be read by any stage without opening the dependency again.
+ * <p>
+ * The index can be used from multiple threads.
+ */
+public class DependencyIndex implements AutoCloseable {
+
+    private final Map<File, ZipFile> archives = new ConcurrentHashMap<>();
+
+    private final Map<File, List<ZipArchiveEntry>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param file the dependency file
+     * @return the opened dependency, must not be closed by the caller
+     * @throws IOException if the dependency cannot be read
+     */
+    public ZipFile open(File file) throws IOException {
+        try {
+            return archives.computeIfAbsent(file, f -> {
+                try {
+                    return ZipFile.builder().setFile(f).get();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param file the dependency file
+     * @return the entries of the dependency, in the order of its central directory
+     * @throws IOException if the dependency cannot be read
+     */
+    public List<ZipArchiveEntry> getEntries(File file) throws IOException {
+        ZipFile zip = open(file);
+        return entries.computeIfAbsent(file, f -> {
+            List<ZipArchiveEntry> list = new ArrayList<>();
+            Enumeration<ZipArchiveEntry> enumeration = zip.getEntries();
+            while (enumeration.hasMoreElements()) {
+                list.add(enumeration.nextElement());
+            }
+            return Collections.unmodifiableList(list);
+        });
+    }
+
+    /**
+     * @param file  the dependency file
+     * @param entry an entry of the dependency
+     * @return the uncompressed content of the entry
+     * @throws IOException if the entry cannot be read
+     */
+    public InputStream getInputStream(File file, ZipArchiveEntry entry) throws IOException {
+        return open(file).getInputStream(entry);
+    }
+
+    /**
+     * Closes the opened dependencies.
+     */
+    @Override
+    public void close() {
+        for (ZipFile zip : archives.values()) {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // Ignore it, the dependency was only read
+            }
+        }
+        archives.clear();
+        entries.clear();
+    }
+}
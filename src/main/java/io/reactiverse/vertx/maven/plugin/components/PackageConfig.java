@@ -22,6 +22,7 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.project.MavenProject;
 
 import java.io.File;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -33,6 +34,20 @@ public class PackageConfig extends ServiceConfig {
 
     private String classifier;
 
+    private int threads;
+
+    private boolean incremental;
+
+    private boolean jandexIndex;
+
+    private boolean validateServices;
+
+    private boolean prune;
+
+    private List<String> pruneKeeps;
+
+    private Long outputTimestamp;
+
     @Override
     public PackageConfig setArchive(Archive archive) {
         super.setArchive(archive);
@@ -47,6 +62,92 @@ public class PackageConfig extends ServiceConfig {
         this.classifier = classifier;
     }
 
+    /**
+     * @return the number of threads the packaging can use, {@code 0} or less meaning the number of processors
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public PackageConfig setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @return whether the packaging can reuse the archive produced by the previous build
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public PackageConfig setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /**
+     * @return whether the packaging adds a Jandex index merging the project classes and the dependency indexes
+     */
+    public boolean isJandexIndex() {
+        return jandexIndex;
+    }
+
+    public PackageConfig setJandexIndex(boolean jandexIndex) {
+        this.jandexIndex = jandexIndex;
+        return this;
+    }
+
+    /**
+     * @return whether the packaging removes the service providers whose class is not in the archive, and adds an
+     * index of the service providers
+     */
+    public boolean isValidateServices() {
+        return validateServices;
+    }
+
+    public PackageConfig setValidateServices(boolean validateServices) {
+        this.validateServices = validateServices;
+        return this;
+    }
+
+    /**
+     * @return whether the packaging removes the dependency classes that cannot be reached from the project classes,
+     * the main class, the main verticle and the service providers
+     */
+    public boolean isPrune() {
+        return prune;
+    }
+
+    public PackageConfig setPrune(boolean prune) {
+        this.prune = prune;
+        return this;
+    }
+
+    /**
+     * @return the patterns of the class names kept by the pruning, may be {@code null}
+     */
+    public List<String> getPruneKeeps() {
+        return pruneKeeps;
+    }
+
+    public PackageConfig setPruneKeeps(List<String> pruneKeeps) {
+        this.pruneKeeps = pruneKeeps;
+        return this;
+    }
+
+    /**
+     * @return the timestamp of the archive entries in milliseconds since the epoch, {@code null} unless the archive
+     * must be reproducible
+     */
+    public Long getOutputTimestamp() {
+        return outputTimestamp;
+    }
+
+    public PackageConfig setOutputTimestamp(Long outputTimestamp) {
+        this.outputTimestamp = outputTimestamp;
+        return this;
+    }
 
     @Override
     public PackageConfig setMojo(AbstractVertxMojo mojo) {
@@ -72,4 +173,10 @@ public class PackageConfig extends ServiceConfig {
         super.setOutput(output);
         return this;
     }
+
+    @Override
+    public PackageConfig setDependencyIndex(DependencyIndex dependencyIndex) {
+        super.setDependencyIndex(dependencyIndex);
+        return this;
+    }
 }
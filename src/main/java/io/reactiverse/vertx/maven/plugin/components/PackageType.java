@@ -27,6 +27,11 @@ public enum PackageType {
 
     JAR,
 
-    EXPLODED
+    EXPLODED,
+
+    /**
+     * A thin jar containing the project, and the dependencies copied next to it, grouped by how often they change.
+     */
+    LAYERED
 
 }
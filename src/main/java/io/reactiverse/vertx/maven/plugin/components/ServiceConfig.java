@@ -37,6 +37,7 @@ public class ServiceConfig {
     private Set<Artifact> artifacts;
     private File output;
     private Archive archive;
+    private DependencyIndex dependencyIndex;
 
     public AbstractVertxMojo getMojo() {
         return mojo;
@@ -82,4 +83,17 @@ public class ServiceConfig {
         this.archive = archive;
         return this;
     }
+
+    /**
+     * @return the index of the dependency entries shared by the build stages, {@code null} if each stage reads the
+     * dependencies on its own
+     */
+    public DependencyIndex getDependencyIndex() {
+        return dependencyIndex;
+    }
+
+    public ServiceConfig setDependencyIndex(DependencyIndex dependencyIndex) {
+        this.dependencyIndex = dependencyIndex;
+        return this;
+    }
 }
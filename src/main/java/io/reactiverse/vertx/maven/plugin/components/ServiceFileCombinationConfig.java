@@ -1,5 +1,6 @@
 package io.reactiverse.vertx.maven.plugin.components;
 
+import io.reactiverse.vertx.maven.plugin.components.impl.merge.MergingStrategy;
 import io.reactiverse.vertx.maven.plugin.model.CombinationStrategy;
 import io.reactiverse.vertx.maven.plugin.mojos.AbstractVertxMojo;
 import io.reactiverse.vertx.maven.plugin.mojos.Archive;
@@ -7,6 +8,7 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.project.MavenProject;
 
 import java.io.File;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -17,6 +19,14 @@ public class ServiceFileCombinationConfig extends ServiceConfig {
 
     private CombinationStrategy strategy;
 
+    private int threads;
+
+    private File cacheDirectory;
+
+    private long cacheMaxSize;
+
+    private Map<String, MergingStrategy> mergingStrategies;
+
 
     @Override
     public ServiceFileCombinationConfig setMojo(AbstractVertxMojo mojo) {
@@ -51,9 +61,65 @@ public class ServiceFileCombinationConfig extends ServiceConfig {
         return strategy;
     }
 
+    /**
+     * @return the maximum number of descriptors merged concurrently, {@code 0} or less meaning the number of
+     * processors
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public ServiceFileCombinationConfig setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @return the directory caching the descriptors extracted from the dependencies, {@code null} if the cache is
+     * disabled
+     */
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public ServiceFileCombinationConfig setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    /**
+     * @return the maximum size of the descriptor cache, in bytes
+     */
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public ServiceFileCombinationConfig setCacheMaxSize(long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+        return this;
+    }
+
+    /**
+     * @return the merging strategy components, keyed by hint, {@code null} to only use the built-in strategies
+     */
+    public Map<String, MergingStrategy> getMergingStrategies() {
+        return mergingStrategies;
+    }
+
+    public ServiceFileCombinationConfig setMergingStrategies(Map<String, MergingStrategy> mergingStrategies) {
+        this.mergingStrategies = mergingStrategies;
+        return this;
+    }
+
     @Override
     public ServiceFileCombinationConfig setArchive(Archive archive) {
         super.setArchive(archive);
         return this;
     }
+
+    @Override
+    public ServiceFileCombinationConfig setDependencyIndex(DependencyIndex dependencyIndex) {
+        super.setDependencyIndex(dependencyIndex);
+        return this;
+    }
 }
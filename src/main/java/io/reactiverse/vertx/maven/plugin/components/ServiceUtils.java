@@ -25,14 +25,24 @@ import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.shared.artifact.filter.PatternExcludesArtifactFilter;
 import org.apache.maven.shared.artifact.filter.PatternIncludesArtifactFilter;
 import org.apache.maven.shared.artifact.filter.resolve.ScopeFilter;
+import org.apache.maven.shared.artifact.filter.resolve.transform.ArtifactIncludeFilterTransformer;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
 
 /**
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
 public class ServiceUtils {
 
+    // The range of the zip entry timestamps
+    private static final Instant MIN_OUTPUT_TIMESTAMP = Instant.parse("1980-01-01T00:00:02Z");
+    private static final Instant MAX_OUTPUT_TIMESTAMP = Instant.parse("2099-12-31T23:59:59Z");
+
     private ServiceUtils() {
         // avoid direct instantiation.
     }
@@ -88,6 +98,73 @@ public class ServiceUtils {
         return copy;
     }
 
+    /**
+     * Selects the artifacts matching the scope, includes and excludes of the given {@link DependencySet}.
+     */
+    public static Set<Artifact> filterArtifacts(Set<Artifact> artifacts, DependencySet set, Log logger) {
+        ScopeFilter scopeFilter = newScopeFilter(set.getScope());
+        ArtifactFilter filter = new ArtifactIncludeFilterTransformer().transform(scopeFilter);
+        return filterArtifacts(artifacts, set.getIncludes(), set.getExcludes(),
+            set.isUseTransitiveDependencies(), logger, filter);
+    }
+
+    /**
+     * Creates the manifest of the über jar.
+     *
+     * @param entries      the entries to add to the manifest, may be {@code null}
+     * @param multiRelease whether the archive contains files under {@code META-INF/versions}
+     * @return the manifest
+     */
+    public static Manifest createManifest(Map<String, String> entries, boolean multiRelease) {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        if (multiRelease && (entries == null || !entries.containsKey("Multi-Release"))) {
+            attributes.put(new Attributes.Name("Multi-Release"), Boolean.TRUE.toString());
+        }
+
+        if (entries != null) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                attributes.put(new Attributes.Name(entry.getKey()), entry.getValue());
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Parses the output timestamp of a reproducible build, as configured with the {@code project.build.outputTimestamp}
+     * property.
+     *
+     * @param value the number of seconds since the epoch, or an ISO-8601 date time with an offset, such as
+     *              {@code 2024-01-01T00:00:00Z}
+     * @return the timestamp in milliseconds since the epoch, {@code null} if the value is not set, or is a single
+     * character, which disables the reproducible build
+     * @throws IllegalArgumentException if the value cannot be parsed, or cannot be stored in a zip entry
+     */
+    public static Long parseOutputTimestamp(String value) {
+        if (value == null || value.trim().length() < 2) {
+            return null;
+        }
+        String trimmed = value.trim();
+        Instant instant;
+        try {
+            if (trimmed.chars().allMatch(Character::isDigit)) {
+                instant = Instant.ofEpochSecond(Long.parseLong(trimmed));
+            } else {
+                instant = OffsetDateTime.parse(trimmed).toInstant();
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid output timestamp `" + value + "`, expected a number of "
+                + "seconds since the epoch or an ISO-8601 date time such as 2024-01-01T00:00:00Z", e);
+        }
+        if (instant.isBefore(MIN_OUTPUT_TIMESTAMP) || instant.isAfter(MAX_OUTPUT_TIMESTAMP)) {
+            throw new IllegalArgumentException("Invalid output timestamp `" + value + "`, it must be between "
+                + MIN_OUTPUT_TIMESTAMP + " and " + MAX_OUTPUT_TIMESTAMP);
+        }
+        return instant.toEpochMilli();
+    }
+
     public static ScopeFilter newScopeFilter(String scope) {
         Set<String> scopes = new HashSet<>();
 
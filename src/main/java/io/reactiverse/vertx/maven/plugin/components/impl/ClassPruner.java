@@ -0,0 +1,235 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import io.reactiverse.vertx.maven.plugin.utils.PatternSet;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes the classes of the archive that cannot be reached from a set of root classes.
+ * <p>
+ * The references of a class are read from its constant pool: the referenced classes, the types of the field and
+ * method descriptors, signatures and annotations, and the string constants naming a class of the archive (such as
+ * {@code Class.forName} arguments). Other reflective accesses cannot be detected: the classes they load must be kept
+ * with keep patterns.
+ * <p>
+ * Keep patterns use the class name syntax, where {@code *} matches a part of a class or package name and {@code **}
+ * matches any number of packages, for example {@code io.vertx.core.**}.
+ */
+class ClassPruner {
+
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String MULTI_RELEASE_ROOT = "META-INF/versions/";
+
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([\\w$/]+)[;<]");
+
+    /**
+     * Opens the content of an archive entry.
+     */
+    interface Opener {
+        InputStream open(String path) throws IOException;
+    }
+
+    private final PatternSet keeps;
+
+    /**
+     * @param keeps the patterns of the classes to keep, may be {@code null}
+     */
+    ClassPruner(Collection<String> keeps) {
+        List<String> patterns = new ArrayList<>();
+        if (keeps != null) {
+            for (String keep : keeps) {
+                patterns.add(keep.trim().replace('.', '/'));
+            }
+        }
+        this.keeps = PatternSet.ofPaths(patterns, "/");
+    }
+
+    /**
+     * @param paths  the paths of the archive entries, relative to the archive root
+     * @param roots  the names of the root classes
+     * @param opener reads the content of the entries
+     * @return the paths of the class entries that cannot be reached from the roots, including their multi-release
+     * versions
+     * @throws IOException if a class cannot be read
+     */
+    Set<String> unreachable(Collection<String> paths, Collection<String> roots, Opener opener) throws IOException {
+        // Internal class name -> entries of the class (the class, and its multi-release versions)
+        Map<String, List<String>> classes = new LinkedHashMap<>();
+        for (String path : paths) {
+            String name = internalName(path);
+            if (name != null) {
+                classes.computeIfAbsent(name, k -> new ArrayList<>()).add(path);
+            }
+        }
+
+        Set<String> reached = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (String root : roots) {
+            String name = root.replace('.', '/');
+            if (classes.containsKey(name) && reached.add(name)) {
+                queue.add(name);
+            }
+        }
+        for (String name : classes.keySet()) {
+            if (keeps.matches(name) && reached.add(name)) {
+                queue.add(name);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            for (String path : classes.get(queue.poll())) {
+                for (String reference : references(opener, path)) {
+                    if (classes.containsKey(reference) && reached.add(reference)) {
+                        queue.add(reference);
+                    }
+                }
+            }
+        }
+
+        Set<String> unreachable = new LinkedHashSet<>();
+        classes.forEach((name, entries) -> {
+            if (!reached.contains(name)) {
+                unreachable.addAll(entries);
+            }
+        });
+        return unreachable;
+    }
+
+    /**
+     * @return the internal name of the class stored in the entry, {@code null} if the entry is not a class, or is a
+     * module or package descriptor that must always be kept
+     */
+    private static String internalName(String path) {
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        if (!name.endsWith(CLASS_EXTENSION)) {
+            return null;
+        }
+        if (name.startsWith(MULTI_RELEASE_ROOT)) {
+            // META-INF/versions/<version>/<class path>
+            int index = name.indexOf('/', MULTI_RELEASE_ROOT.length());
+            if (index == -1) {
+                return null;
+            }
+            name = name.substring(index + 1);
+        }
+        name = name.substring(0, name.length() - CLASS_EXTENSION.length());
+        if (name.equals("module-info") || name.endsWith("/package-info") || name.equals("package-info")) {
+            return null;
+        }
+        return name;
+    }
+
+    private static Set<String> references(Opener opener, String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(opener.open(path)))) {
+            return references(in);
+        } catch (IOException e) {
+            throw new IOException("Unable to read the class " + path, e);
+        }
+    }
+
+    /**
+     * Reads the names of the classes referenced by the constant pool of a class file.
+     */
+    static Set<String> references(DataInputStream in) throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        int count = in.readUnsignedShort();
+        Set<String> references = new HashSet<>();
+        String[] utf8 = new String[count];
+        List<Integer> classes = new ArrayList<>();
+        List<Integer> strings = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classes.add(in.readUnsignedShort());
+                    break;
+                case 8: // String
+                    strings.add(in.readUnsignedShort());
+                    break;
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.readInt();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.readLong();
+                    // Takes two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unsupported constant pool tag " + tag);
+            }
+        }
+        for (int index : classes) {
+            String name = utf8[index];
+            if (name != null) {
+                if (name.startsWith("[")) {
+                    addDescriptorTypes(name, references);
+                } else {
+                    references.add(name);
+                }
+            }
+        }
+        for (int index : strings) {
+            String value = utf8[index];
+            if (value != null) {
+                // Class names, as used by reflection
+                references.add(value.replace('.', '/'));
+            }
+        }
+        for (String value : utf8) {
+            if (value != null && value.indexOf(';') != -1) {
+                // Descriptors, signatures and annotation types
+                addDescriptorTypes(value, references);
+            }
+        }
+        return references;
+    }
+
+    private static void addDescriptorTypes(String descriptor, Set<String> references) {
+        Matcher matcher = DESCRIPTOR_TYPE.matcher(descriptor);
+        while (matcher.find()) {
+            references.add(matcher.group(1));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ *   Copyright (c) 2016-2018 Red Hat, Inc.
+ *
+ *   Red Hat licenses this file to you under the Apache License, version
+ *   2.0 (the "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied.  See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySet;
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySetOptions;
+import io.reactiverse.vertx.maven.plugin.utils.PatternSet;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides whether an entry of a dependency must be embedded in the archive, according to the options of its
+ * {@link DependencySet}.
+ * <p>
+ * Entry names are absolute archive paths, e.g. {@code /META-INF/MANIFEST.MF}. Patterns follow the
+ * {@link org.codehaus.plexus.util.SelectorUtils#match(String, String)} semantics, and are compiled once in a
+ * {@link PatternSet}.
+ */
+class DependencyEntryFilter {
+
+    static final List<String> DEFAULT_EXCLUDES;
+
+    private static final PatternSet DEFAULT_EXCLUDES_PATTERNS;
+
+    static {
+        DEFAULT_EXCLUDES = new ArrayList<>(FileUtils.getDefaultExcludesAsList());
+        DEFAULT_EXCLUDES.add("**/*.DSA");
+        DEFAULT_EXCLUDES.add("**/*.RSA");
+        DEFAULT_EXCLUDES.add("**/INDEX.LIST");
+        DEFAULT_EXCLUDES.add("**/*.SF");
+        DEFAULT_EXCLUDES_PATTERNS = PatternSet.of(DEFAULT_EXCLUDES);
+    }
+
+    private final PatternSet includes;
+
+    private final PatternSet excludes;
+
+    private final boolean useDefaultExcludes;
+
+    DependencyEntryFilter(DependencySet set) {
+        DependencySetOptions options = set.getOptions();
+        this.includes = PatternSet.of(options.getIncludes());
+        this.excludes = PatternSet.of(options.getExcludes());
+        this.useDefaultExcludes = options.isUseDefaultExcludes();
+    }
+
+    /**
+     * @param name the absolute path of the entry in the archive
+     * @return {@code true} if the entry must not be embedded
+     */
+    boolean isExcluded(String name) {
+        // If include patterns are set, the entry must match one of them
+        if (!includes.isEmpty() && !includes.matches(name)) {
+            return true;
+        }
+
+        if (useDefaultExcludes && DEFAULT_EXCLUDES_PATTERNS.matches(name)) {
+            return true;
+        }
+
+        if (name.equalsIgnoreCase("/META-INF/MANIFEST.MF")) {
+            return true;
+        }
+
+        if (name.equals("/module-info.class")) {
+            return true;
+        }
+
+        return excludes.matches(name);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * An on-disk cache of the descriptors extracted from the dependencies, so that the descriptors of unchanged
+ * dependencies are not read and inflated again by the next builds. It does not spare the packaging, which still opens
+ * every dependency to copy its content.
+ * <p>
+ * Each dependency is stored in its own file, named after a digest of the dependency location, size and modification
+ * time, and of the combination patterns. Released artifacts never change, so this key is stable across builds, and
+ * cheaper to compute than a digest of the content. The least recently used files are evicted when the cache grows
+ * beyond its maximum size.
+ */
+class DescriptorCache {
+
+    private static final String EXTENSION = ".spi";
+
+    private final File directory;
+    private final long maxSize;
+    private final String patterns;
+    private final Log log;
+
+    /**
+     * Loads the descriptors of a dependency when they are not in the cache.
+     */
+    interface Loader {
+        Map<String, byte[]> load(File file) throws IOException;
+    }
+
+    /**
+     * @param directory the cache directory
+     * @param maxSize   the maximum size of the cache in bytes
+     * @param patterns  the patterns selecting the descriptors
+     * @param log       the logger
+     */
+    DescriptorCache(File directory, long maxSize, List<String> patterns, Log log) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.patterns = String.join("\n", patterns);
+        this.log = log;
+    }
+
+    /**
+     * @param file   the dependency
+     * @param loader the loader used when the dependency is not in the cache
+     * @return the descriptors of the dependency, keyed by their path in the archive, in the order of the dependency
+     * @throws IOException if the loader fails
+     */
+    Map<String, byte[]> get(File file, Loader loader) throws IOException {
+        File cached = new File(directory, key(file) + EXTENSION);
+        if (cached.isFile()) {
+            try {
+                Map<String, byte[]> descriptors = read(cached);
+                // Keep track of the usage for the eviction
+                if (!cached.setLastModified(System.currentTimeMillis())) {
+                    log.debug("Unable to update the modification time of " + cached.getAbsolutePath());
+                }
+                return descriptors;
+            } catch (IOException e) {
+                log.debug("Ignoring the cached descriptors of " + file.getAbsolutePath(), e);
+            }
+        }
+        Map<String, byte[]> descriptors = loader.load(file);
+        try {
+            write(cached, descriptors);
+        } catch (IOException e) {
+            log.debug("Unable to cache the descriptors of " + file.getAbsolutePath(), e);
+        }
+        return descriptors;
+    }
+
+    /**
+     * Deletes the least recently used files until the cache size is below its maximum size.
+     */
+    void evict() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (size <= maxSize) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private String key(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        String key = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified() + "|" + patterns;
+        byte[] bytes = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static Map<String, byte[]> read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = in.readInt();
+            Map<String, byte[]> descriptors = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                descriptors.put(path, content);
+            }
+            return descriptors;
+        }
+    }
+
+    private void write(File file, Map<String, byte[]> descriptors) throws IOException {
+        Files.createDirectories(directory.toPath());
+        // Written aside, then moved, so that concurrent builds never read a partial file
+        File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(descriptors.size());
+                for (Map.Entry<String, byte[]> entry : descriptors.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.jboss.jandex.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds the Jandex index of the fat jar, so that the application reads a single precomputed index instead of
+ * scanning its classpath.
+ * <p>
+ * The project classes are indexed, and the indexes shipped by the dependencies are merged without reading the
+ * dependency classes again. As for the archive entries, the project classes come first, then the dependencies in
+ * order, and the first class with a given name wins. Class usages are not part of the merged index. The classes
+ * removed from the archive, such as the pruned classes, are left out of the index.
+ */
+class JandexIndexBuilder {
+
+    /**
+     * The path of the index in the archive.
+     */
+    static final String PATH = "/META-INF/jandex.idx";
+
+    private Index project;
+
+    private final List<Index> dependencies = new ArrayList<>();
+
+    private final Set<String> removed = new HashSet<>();
+
+    /**
+     * Indexes the classes of the project.
+     *
+     * @param directory the output directory of the project
+     * @throws IOException if a class cannot be read
+     */
+    void addProjectClasses(File directory) throws IOException {
+        Indexer indexer = new Indexer();
+        if (directory.isDirectory()) {
+            List<Path> classes;
+            try (Stream<Path> files = Files.walk(directory.toPath())) {
+                classes = files.filter(p -> p.getFileName().toString().endsWith(".class"))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+            for (Path path : classes) {
+                try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
+                    indexer.index(is);
+                }
+            }
+        }
+        project = indexer.complete();
+    }
+
+    /**
+     * Adds the index shipped by a dependency.
+     *
+     * @param is the content of the {@code META-INF/jandex.idx} entry of the dependency
+     * @throws IOException if the index cannot be read, or its version is not supported
+     */
+    void addDependencyIndex(InputStream is) throws IOException {
+        dependencies.add(new IndexReader(new BufferedInputStream(is)).read());
+    }
+
+    /**
+     * Leaves classes removed from the archive out of the index.
+     *
+     * @param paths the paths of the removed class entries, such as {@code /org/acme/Foo.class}
+     */
+    void removeClasses(Collection<String> paths) {
+        for (String path : paths) {
+            String name = path.startsWith("/") ? path.substring(1) : path;
+            if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                removed.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+            }
+        }
+    }
+
+    /**
+     * @return the serialized merged index
+     * @throws IOException if the index cannot be written
+     */
+    byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new IndexWriter(out).write(build());
+        return out.toByteArray();
+    }
+
+    Index build() {
+        List<Index> indexes = new ArrayList<>();
+        if (project != null) {
+            indexes.add(project);
+        }
+        indexes.addAll(dependencies);
+
+        Map<DotName, ClassInfo> classes = new LinkedHashMap<>();
+        Map<DotName, ModuleInfo> modules = new LinkedHashMap<>();
+        for (Index index : indexes) {
+            for (ClassInfo info : index.getKnownClasses()) {
+                if (removed.contains(info.name().toString())) {
+                    continue;
+                }
+                classes.putIfAbsent(info.name(), info);
+            }
+            for (ModuleInfo info : index.getKnownModules()) {
+                modules.putIfAbsent(info.name(), info);
+            }
+        }
+
+        Map<DotName, List<AnnotationInstance>> annotations = new HashMap<>();
+        Map<DotName, List<ClassInfo>> subclasses = new HashMap<>();
+        Map<DotName, List<ClassInfo>> subinterfaces = new HashMap<>();
+        Map<DotName, List<ClassInfo>> implementors = new HashMap<>();
+        for (ClassInfo info : classes.values()) {
+            info.annotationsMap().forEach((name, instances) ->
+                annotations.computeIfAbsent(name, k -> new ArrayList<>()).addAll(instances));
+            if (info.superName() != null) {
+                subclasses.computeIfAbsent(info.superName(), k -> new ArrayList<>()).add(info);
+            }
+            Map<DotName, List<ClassInfo>> target = info.isInterface() ? subinterfaces : implementors;
+            for (DotName name : info.interfaceNames()) {
+                target.computeIfAbsent(name, k -> new ArrayList<>()).add(info);
+            }
+        }
+        return Index.create(annotations, subclasses, subinterfaces, implementors, classes, modules,
+            Collections.emptyMap());
+    }
+}
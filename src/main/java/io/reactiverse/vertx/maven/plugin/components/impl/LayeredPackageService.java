@@ -0,0 +1,187 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import io.reactiverse.vertx.maven.plugin.components.*;
+import io.reactiverse.vertx.maven.plugin.mojos.Archive;
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySet;
+import io.reactiverse.vertx.maven.plugin.mojos.FileItem;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.component.annotations.Component;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Service packaging the application as a thin jar, with the dependencies copied to a {@code lib} directory next to
+ * it and referenced from the {@code Class-Path} manifest entry.
+ * <p>
+ * The dependencies are grouped by how often they change: the released dependencies in {@code lib/release}, the
+ * snapshot dependencies in {@code lib/snapshot}. The thin jar holds the project classes and resources. Each group can
+ * be copied to its own container image layer, so that a code change only produces a new application layer.
+ * <p>
+ * The copied dependencies keep the modification time of their source, and are only copied again when they change,
+ * so the layers stay identical from one build to the other.
+ */
+@Component(
+    role = PackageService.class,
+    hint = "layered")
+public class LayeredPackageService implements PackageService {
+
+    /**
+     * The directory containing the dependency layers, relative to the thin jar.
+     */
+    static final String LIB = "lib";
+
+    static final String RELEASE_LAYER = "release";
+
+    static final String SNAPSHOT_LAYER = "snapshot";
+
+    @Override
+    public PackageType type() {
+        return PackageType.LAYERED;
+    }
+
+    @Override
+    public File doPackage(PackageConfig config) throws PackagingException {
+        Log logger = Objects.requireNonNull(config.getMojo().getLog());
+        Archive archive = Objects.requireNonNull(config.getArchive());
+        if (config.isPrune()) {
+            logger.warn("Unreachable classes are only pruned by the fat-jar packager, ignoring it");
+        }
+        if (config.isValidateServices()) {
+            logger.warn("Service providers are only validated by the fat-jar packagers, ignoring it");
+        }
+
+        File jarFile = config.getOutput();
+        List<String> classPath = copyDependencies(config, archive.getDependencySets(),
+            new File(jarFile.getParentFile(), LIB));
+
+        JavaArchive jar = ShrinkWrap.create(JavaArchive.class);
+
+        ShrinkWrapFatJarPackageService.addFileSets(config, archive, jar);
+
+        ShrinkWrapFatJarPackageService.addProjectClasses(config, archive, jar);
+
+        if (config.isJandexIndex()) {
+            // The dependencies are not embedded, their indexes stay in their own jar
+            ShrinkWrapFatJarPackageService.addJandexIndex(config, archive, new JandexIndexBuilder(), jar);
+        }
+
+        for (FileItem item : archive.getFiles()) {
+            ShrinkWrapFatJarPackageService.embedFile(config, jar, item);
+        }
+
+        Map<String, String> manifest = new LinkedHashMap<>(archive.getManifest());
+        if (!classPath.isEmpty()) {
+            String configured = manifest.get("Class-Path");
+            String layers = String.join(" ", classPath);
+            manifest.put("Class-Path", StringUtils.isBlank(configured) ? layers : configured + " " + layers);
+        }
+        try {
+            ShrinkWrapFatJarPackageService.generateManifest(jar, manifest);
+        } catch (IOException e) {
+            throw new PackagingException(e);
+        }
+
+        ShrinkWrapFatJarPackageService.export(logger, jar, jarFile);
+        if (config.getOutputTimestamp() != null) {
+            ShrinkWrapFatJarPackageService.makeReproducible(jarFile, config.getOutputTimestamp());
+        }
+        return jarFile;
+    }
+
+    /**
+     * Copies the dependencies to their layer, and deletes the files of the dependencies no longer used.
+     *
+     * @return the paths of the dependencies, relative to the thin jar, in the order of the dependency sets
+     */
+    private static List<String> copyDependencies(PackageConfig config, Collection<DependencySet> sets, File lib)
+        throws PackagingException {
+        Log logger = config.getMojo().getLog();
+        // Keyed by path relative to the thin jar, so a dependency selected by several sets is copied once
+        Map<String, File> dependencies = new LinkedHashMap<>();
+        for (DependencySet ds : sets) {
+            for (Artifact artifact : ServiceUtils.filterArtifacts(config.getArtifacts(), ds, logger)) {
+                File file = artifact.getFile();
+                if (file != null && file.isFile()) {
+                    String layer = artifact.isSnapshot() ? SNAPSHOT_LAYER : RELEASE_LAYER;
+                    dependencies.putIfAbsent(LIB + "/" + layer + "/" + fileName(artifact), file);
+                } else {
+                    logger.warn("Cannot copy artifact " + artifact + " - the file does not exist");
+                }
+            }
+        }
+
+        try {
+            for (Map.Entry<String, File> dependency : dependencies.entrySet()) {
+                File source = dependency.getValue();
+                File target = new File(lib.getParentFile(), dependency.getKey());
+                if (target.isFile() && target.length() == source.length()
+                    && target.lastModified() == source.lastModified()) {
+                    logger.debug(target.getName() + " is up to date");
+                    continue;
+                }
+                logger.debug("Copying dependency " + source.getAbsolutePath() + " to " + target.getAbsolutePath());
+                Files.createDirectories(target.getParentFile().toPath());
+                Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.COPY_ATTRIBUTES);
+            }
+
+            for (String layer : Arrays.asList(RELEASE_LAYER, SNAPSHOT_LAYER)) {
+                File[] files = new File(lib, layer).listFiles();
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (!dependencies.containsKey(LIB + "/" + layer + "/" + file.getName())) {
+                        logger.debug("Deleting the unused dependency " + file.getAbsolutePath());
+                        Files.deleteIfExists(file.toPath());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new PackagingException("Unable to copy the dependencies to " + lib.getAbsolutePath(), e);
+        }
+        return new ArrayList<>(dependencies.keySet());
+    }
+
+    /**
+     * The name of the copied dependency. The group id avoids clashes between artifacts with the same id, and the base
+     * version keeps the name of a snapshot stable when it is updated.
+     */
+    static String fileName(Artifact artifact) {
+        String name = artifact.getFile().getName();
+        int dot = name.lastIndexOf('.');
+        String extension = dot > 0 ? name.substring(dot) : ".jar";
+        StringBuilder builder = new StringBuilder()
+            .append(artifact.getGroupId()).append('.')
+            .append(artifact.getArtifactId()).append('-')
+            .append(artifact.getBaseVersion());
+        if (StringUtils.isNotBlank(artifact.getClassifier())) {
+            builder.append('-').append(artifact.getClassifier());
+        }
+        return builder.append(extension).toString();
+    }
+}
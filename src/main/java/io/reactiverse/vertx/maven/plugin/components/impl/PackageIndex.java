@@ -0,0 +1,197 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * The sidecar index written next to an archive built incrementally.
+ * <p>
+ * It records the digest of the dependency selection, the dependency entries kept after the first-wins resolution
+ * (the <em>plan</em>) and the fingerprint of the source of each file entry of the archive. The next build compares
+ * these fingerprints with the current sources to copy the unchanged entries from the previous archive.
+ * <p>
+ * The index is bound to the archive it describes through the archive size and modification time: if the archive is
+ * modified by something else, the index is ignored.
+ */
+class PackageIndex {
+
+    static final String SUFFIX = ".index";
+
+    private static final String HEADER = "# vertx:package index v1";
+    private static final String JAR = "jar";
+    private static final String DEPENDENCIES = "dependencies";
+    private static final String PLANNED = "D";
+    private static final String ENTRY = "E";
+    private static final String SEPARATOR = "\t";
+
+    private String dependencies;
+
+    private final List<PlannedEntry> plan = new ArrayList<>();
+
+    private final Map<String, String> fingerprints = new HashMap<>();
+
+    /**
+     * @param jar the archive
+     * @return the index file of the given archive
+     */
+    static File location(File jar) {
+        return new File(jar.getParentFile(), jar.getName() + SUFFIX);
+    }
+
+    /**
+     * @param file the file
+     * @return a fingerprint of the given file, based on its location, size and modification time
+     */
+    static String stamp(File file) {
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /**
+     * Reads the index of the given archive.
+     *
+     * @param jar the archive
+     * @param log the logger
+     * @return the index, {@code null} if the archive or its index do not exist, or if the index is not up-to-date
+     */
+    static PackageIndex read(File jar, Log log) {
+        File file = location(jar);
+        if (!jar.isFile() || !file.isFile()) {
+            return null;
+        }
+        PackageIndex index = new PackageIndex();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                log.debug("Ignoring " + file.getAbsolutePath() + " - unknown format");
+                return null;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] segments = line.split(SEPARATOR, -1);
+                switch (segments[0]) {
+                    case JAR:
+                        if (!jarStamp(jar).equals(segments[1] + SEPARATOR + segments[2])) {
+                            log.debug("Ignoring " + file.getAbsolutePath() + " - the archive has been modified");
+                            return null;
+                        }
+                        break;
+                    case DEPENDENCIES:
+                        index.setDependencies(segments[1]);
+                        break;
+                    case PLANNED:
+                        index.addPlannedEntry(segments[1], segments[2].isEmpty() ? null : segments[2], segments[3]);
+                        break;
+                    case ENTRY:
+                        index.addEntry(segments[1], segments[2]);
+                        break;
+                    default:
+                        log.debug("Ignoring " + file.getAbsolutePath() + " - unexpected line: " + line);
+                        return null;
+                }
+            }
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            log.debug("Ignoring " + file.getAbsolutePath() + " - unable to read it", e);
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index of the given archive. Must be called once the archive is written.
+     *
+     * @param jar the archive
+     * @throws IOException if the index cannot be written
+     */
+    void write(File jar) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(location(jar).toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(JAR + SEPARATOR + jarStamp(jar));
+            writer.newLine();
+            if (dependencies != null) {
+                writer.write(DEPENDENCIES + SEPARATOR + dependencies);
+                writer.newLine();
+            }
+            for (PlannedEntry entry : plan) {
+                writer.write(PLANNED + SEPARATOR + entry.name + SEPARATOR
+                    + (entry.artifact == null ? "" : entry.artifact) + SEPARATOR + entry.entry);
+                writer.newLine();
+            }
+            for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+                writer.write(ENTRY + SEPARATOR + entry.getKey() + SEPARATOR + entry.getValue());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String jarStamp(File jar) {
+        return jar.length() + SEPARATOR + jar.lastModified();
+    }
+
+    String getDependencies() {
+        return dependencies;
+    }
+
+    void setDependencies(String dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    List<PlannedEntry> getPlan() {
+        return plan;
+    }
+
+    /**
+     * Records a dependency entry kept in the archive.
+     *
+     * @param name     the name of the entry in the archive
+     * @param artifact the path of the dependency, {@code null} for directories
+     * @param entry    the name of the entry in the dependency
+     */
+    void addPlannedEntry(String name, String artifact, String entry) {
+        plan.add(new PlannedEntry(name, artifact, entry));
+    }
+
+    /**
+     * @param name the name of the entry in the archive
+     * @return the fingerprint of the source of the entry, {@code null} if unknown
+     */
+    String getFingerprint(String name) {
+        return fingerprints.get(name);
+    }
+
+    void addEntry(String name, String fingerprint) {
+        fingerprints.put(name, fingerprint);
+    }
+
+    static class PlannedEntry {
+
+        final String name;
+        final String artifact;
+        final String entry;
+
+        PlannedEntry(String name, String artifact, String entry) {
+            this.name = name;
+            this.artifact = artifact;
+            this.entry = entry;
+        }
+    }
+}
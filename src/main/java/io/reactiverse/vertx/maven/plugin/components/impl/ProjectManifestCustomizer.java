@@ -29,6 +29,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 import java.util.stream.Collectors;
 
 /**
@@ -40,6 +41,8 @@ import java.util.stream.Collectors;
 )
 public class ProjectManifestCustomizer implements ManifestCustomizerService {
 
+    private static final String TIMESTAMP_FORMAT = "yyyyMMdd HH:mm:ss z";
+
     @Override
     public Map<String, String> getEntries(AbstractVertxMojo mojo, MavenProject project) {
         Map<String, String> attributes = new HashMap<>();
@@ -51,6 +54,7 @@ public class ProjectManifestCustomizer implements ManifestCustomizerService {
         attributes.put(ExtraManifestKeys.PROJECT_NAME.header(),
             model.getName() == null ? model.getArtifactId() : model.getName());
 
+        // Replaced by the package goal with the output timestamp of reproducible builds
         attributes.put(ExtraManifestKeys.BUILD_TIMESTAMP.header(), manifestTimestampFormat(new Date()));
 
         if (project.getUrl() != null) {
@@ -71,7 +75,19 @@ public class ProjectManifestCustomizer implements ManifestCustomizerService {
     }
 
     public static String manifestTimestampFormat(Date date) {
-        return new SimpleDateFormat("yyyyMMdd HH:mm:ss z").format(date);
+        return new SimpleDateFormat(TIMESTAMP_FORMAT).format(date);
+    }
+
+    /**
+     * Formats the output timestamp of a reproducible build, in a time zone independent of the build machine.
+     *
+     * @param outputTimestamp the output timestamp, in milliseconds since the epoch
+     * @return the formatted timestamp
+     */
+    public static String reproducibleTimestampFormat(long outputTimestamp) {
+        SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(outputTimestamp));
     }
 
     /**
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Rewrites an archive so that identical content always produces identical bytes, whatever the order in which the
+ * entries were added, the time of the build, or the file system the sources come from.
+ * <p>
+ * The entries are sorted by name, the manifest first as expected by {@link java.util.jar.JarInputStream}. Their
+ * timestamp is set to the given output timestamp, their permissions to {@code 0644} for files and {@code 0755} for
+ * directories, and their extra fields and comments are dropped. The compressed content is copied as-is.
+ */
+final class ReproducibleArchive {
+
+    private static final String META_INF = "META-INF/";
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    private static final int FILE_MODE = 0100644;
+    private static final int DIRECTORY_MODE = 040755;
+
+    private ReproducibleArchive() {
+        // avoid direct instantiation.
+    }
+
+    /**
+     * @param jar       the archive, replaced by the normalized archive
+     * @param timestamp the timestamp of the entries, in milliseconds since the epoch
+     * @throws IOException if the archive cannot be read or written
+     */
+    static void normalize(File jar, long timestamp) throws IOException {
+        // Zip entries store a local date and time: shift the timestamp so that the stored value is the UTC one,
+        // regardless of the time zone of the build
+        long time = timestamp - TimeZone.getDefault().getOffset(timestamp);
+        File tmp = new File(jar.getParentFile(), jar.getName() + ".reproducible");
+        try {
+            try (ZipFile zip = ZipFile.builder().setFile(jar).get();
+                 ZipArchiveOutputStream out = new ZipArchiveOutputStream(tmp)) {
+                for (ZipArchiveEntry entry : sortedEntries(zip)) {
+                    ZipArchiveEntry normalized = new ZipArchiveEntry(entry.getName());
+                    normalized.setMethod(entry.getMethod());
+                    normalized.setCrc(entry.getCrc());
+                    normalized.setSize(entry.getSize());
+                    normalized.setCompressedSize(entry.getCompressedSize());
+                    normalized.setTime(time);
+                    normalized.setUnixMode(entry.isDirectory() ? DIRECTORY_MODE : FILE_MODE);
+                    try (InputStream is = zip.getRawInputStream(entry)) {
+                        out.addRawArchiveEntry(normalized, is);
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private static List<ZipArchiveEntry> sortedEntries(ZipFile zip) {
+        List<ZipArchiveEntry> entries = new ArrayList<>();
+        Enumeration<ZipArchiveEntry> enumeration = zip.getEntries();
+        while (enumeration.hasMoreElements()) {
+            entries.add(enumeration.nextElement());
+        }
+        entries.sort(Comparator.comparingInt((ZipArchiveEntry entry) -> rank(entry.getName()))
+            .thenComparing(ZipArchiveEntry::getName));
+        return entries;
+    }
+
+    private static int rank(String name) {
+        if (META_INF.equals(name)) {
+            return 0;
+        }
+        return MANIFEST.equals(name) ? 1 : 2;
+    }
+}
@@ -16,13 +16,17 @@
  */
 package io.reactiverse.vertx.maven.plugin.components.impl;
 
+import io.reactiverse.vertx.maven.plugin.components.DependencyIndex;
 import io.reactiverse.vertx.maven.plugin.components.ServiceFileCombinationConfig;
 import io.reactiverse.vertx.maven.plugin.components.ServiceFileCombiner;
 import io.reactiverse.vertx.maven.plugin.components.ServiceUtils;
 import io.reactiverse.vertx.maven.plugin.components.impl.merge.MergeResult;
-import io.reactiverse.vertx.maven.plugin.components.impl.merge.MergingStrategy;
+import io.reactiverse.vertx.maven.plugin.components.impl.merge.MergingStrategyRegistry;
 import io.reactiverse.vertx.maven.plugin.model.CombinationStrategy;
 import io.reactiverse.vertx.maven.plugin.mojos.DependencySet;
+import io.reactiverse.vertx.maven.plugin.utils.PatternSet;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.plugin.logging.Log;
@@ -31,18 +35,20 @@ import org.apache.maven.shared.artifact.filter.resolve.ScopeFilter;
 import org.apache.maven.shared.artifact.filter.resolve.transform.ArtifactIncludeFilterTransformer;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.util.DirectoryScanner;
-import org.codehaus.plexus.util.SelectorUtils;
-import org.jboss.shrinkwrap.api.ArchivePath;
-import org.jboss.shrinkwrap.api.Node;
-import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
 import org.jboss.shrinkwrap.api.asset.FileAsset;
-import org.jboss.shrinkwrap.api.spec.JavaArchive;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * This component is used to perform Services relocation - typically moving came Service Providers found in
@@ -78,6 +84,14 @@ public class ServiceFileCombinationImpl implements ServiceFileCombiner {
             sets.add(set);
         }
 
+        MergingStrategyRegistry strategies = new MergingStrategyRegistry(config.getMergingStrategies(),
+            config.getArchive().getMergingRules());
+
+        DescriptorCache cache = null;
+        if (config.getCacheDirectory() != null) {
+            cache = new DescriptorCache(config.getCacheDirectory(), config.getCacheMaxSize(), patterns, logger);
+        }
+
         for (DependencySet ds : sets) {
             ScopeFilter scopeFilter = ServiceUtils.newScopeFilter(ds.getScope());
             ArtifactFilter filter = new ArtifactIncludeFilterTransformer().transform(scopeFilter);
@@ -90,11 +104,16 @@ public class ServiceFileCombinationImpl implements ServiceFileCombiner {
                     .filter(f -> f.getName().endsWith(".jar"))
                     .collect(Collectors.toList());
 
-                combine(config.getProject(), patterns, logger, files);
+                combine(config.getProject(), patterns, logger, files, config.getDependencyIndex(), cache,
+                    strategies, config.getThreads());
             } catch (Exception e) {
                 throw new RuntimeException("Unable to combine SPI files for " + config.getProject().getArtifactId(), e);
             }
         }
+
+        if (cache != null) {
+            cache.evict();
+        }
     }
 
     /**
@@ -104,10 +123,17 @@ public class ServiceFileCombinationImpl implements ServiceFileCombiner {
      * @param patterns     the set of patterns
      * @param logger       the logger
      * @param dependencies the dependencies
+     * @param index        the shared dependency index, {@code null} to read the dependencies directly
+     * @param cache        the descriptor cache, {@code null} if disabled
+     * @param strategies   the merging strategies
+     * @param threads      the maximum number of descriptors merged concurrently, {@code 0} or less meaning the
+     *                     number of processors
      */
-    private void combine(MavenProject project, List<String> patterns, Log logger, List<File> dependencies) {
+    private void combine(MavenProject project, List<String> patterns, Log logger, List<File> dependencies,
+                         DependencyIndex index, DescriptorCache cache, MergingStrategyRegistry strategies,
+                         int threads) throws IOException {
         Map<String, Asset> locals = findLocalDescriptors(project, patterns);
-        Map<String, List<Asset>> deps = findDescriptorsFromDependencies(dependencies, patterns);
+        Map<String, List<Asset>> deps = findDescriptorsFromDependencies(dependencies, patterns, index, cache);
 
         // Keys are path relative to the archive root.
         logger.debug("Descriptors declared in the project: " + locals.keySet());
@@ -116,24 +142,49 @@ public class ServiceFileCombinationImpl implements ServiceFileCombiner {
         Set<String> descriptorsToMerge = new LinkedHashSet<>(locals.keySet());
         descriptorsToMerge.addAll(deps.keySet());
 
-        Map<String, MergeResult> descriptors = new HashMap<>();
-        for (String name : descriptorsToMerge) {
-            MergingStrategy strategy = MergingStrategy.forName(name);
-            descriptors.put(name, strategy.merge(project, locals.get(name), deps.get(name)));
-        }
-
         // Write the new files in target/classes
         File out = new File(project.getBuild().getOutputDirectory());
 
-        descriptors.forEach((name, content) -> {
-            File merged = new File(out, name);
-            try {
-                content.writeTo(merged);
+        List<String> names = new ArrayList<>(descriptorsToMerge);
+        int parallelism = Math.min(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), names.size());
+        if (parallelism <= 1) {
+            for (String name : names) {
+                File merged = merge(project, strategies, name, locals.get(name), deps.get(name), out);
                 logger.debug("Descriptor combined into " + merged.getAbsolutePath());
-            } catch (IOException e) {
-                throw new RuntimeException("Cannot write combined Descriptor files", e);
             }
-        });
+            return;
+        }
+
+        // Descriptors are independent: they are merged and written concurrently, and reported in order
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<File>> tasks = new ArrayList<>(names.size());
+            for (String name : names) {
+                tasks.add(pool.submit(() -> merge(project, strategies, name, locals.get(name), deps.get(name), out)));
+            }
+            for (ForkJoinTask<File> task : tasks) {
+                logger.debug("Descriptor combined into " + task.join().getAbsolutePath());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges a descriptor and writes the result in the output directory.
+     *
+     * @return the written file
+     */
+    private static File merge(MavenProject project, MergingStrategyRegistry strategies, String name, Asset local,
+                              List<Asset> deps, File out) {
+        MergeResult content = strategies.get(name).merge(project, local, deps);
+        File merged = new File(out, name);
+        try {
+            content.writeTo(merged);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write combined Descriptor files", e);
+        }
+        return merged;
     }
 
     private static Map<String, Asset> findLocalDescriptors(MavenProject project, List<String> patterns) {
@@ -161,34 +212,67 @@ public class ServiceFileCombinationImpl implements ServiceFileCombiner {
         return map;
     }
 
-    private static Map<String, List<Asset>> findDescriptorsFromDependencies(List<File> deps, List<String> patterns) {
+    /**
+     * Finds the descriptors in the dependencies, in the order of the dependencies.
+     */
+    private static Map<String, List<Asset>> findDescriptorsFromDependencies(List<File> deps, List<String> patterns,
+                                                                            DependencyIndex index,
+                                                                            DescriptorCache cache) throws IOException {
         Map<String, List<Asset>> map = new LinkedHashMap<>();
+        PatternSet matcher = PatternSet.of(patterns);
+        DescriptorCache.Loader loader = index != null ? file -> readDescriptors(index, file, matcher)
+            : file -> readDescriptors(file, matcher);
 
         for (File file : deps) {
-            JavaArchive archive = ShrinkWrap.createFromZipFile(JavaArchive.class, file);
-            Map<ArchivePath, Node> content = getMatchingFilesFromJar(patterns, archive);
-
-            for (Map.Entry<ArchivePath, Node> entry : content.entrySet()) {
-                Asset asset = entry.getValue().getAsset();
-                if (asset != null) {
-                    String path = entry.getKey().get();
-                    List<Asset> items = map.computeIfAbsent(path, k -> new ArrayList<>());
-                    items.add(asset);
-                    map.put(path, items);
-                }
-            }
+            Map<String, byte[]> descriptors = cache != null ? cache.get(file, loader) : loader.load(file);
+            descriptors.forEach((path, content) ->
+                map.computeIfAbsent(path, k -> new ArrayList<>()).add(new ByteArrayAsset(content)));
         }
         return map;
     }
 
-    private static Map<ArchivePath, Node> getMatchingFilesFromJar(List<String> patterns, JavaArchive archive) {
-        return archive.getContent(path -> {
-                    for (String pattern : patterns) {
-                        if (SelectorUtils.match(pattern, path.get())) {
-                            return true;
-                        }
+    /**
+     * Reads the descriptors of a dependency. Only the central directory of the dependency is read to list the
+     * entries, and only the matching entries are inflated.
+     */
+    private static Map<String, byte[]> readDescriptors(File file, PatternSet matcher) throws IOException {
+        Map<String, byte[]> descriptors = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String path = ArchivePaths.create(entry.getName()).get();
+                if (matcher.matches(path)) {
+                    try (InputStream is = zip.getInputStream(entry)) {
+                        descriptors.put(path, IOUtils.toByteArray(is));
                     }
-                    return false;
-                });
+                }
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * Reads the descriptors of a dependency using the shared dependency index: the entry names come from the central
+     * directory read for the packaging, and only the matching entries are read.
+     */
+    private static Map<String, byte[]> readDescriptors(DependencyIndex index, File file, PatternSet matcher)
+        throws IOException {
+        Map<String, byte[]> descriptors = new LinkedHashMap<>();
+        for (ZipArchiveEntry entry : index.getEntries(file)) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String path = ArchivePaths.create(entry.getName()).get();
+            if (matcher.matches(path)) {
+                try (InputStream is = index.getInputStream(file, entry)) {
+                    descriptors.put(path, IOUtils.toByteArray(is));
+                }
+            }
+        }
+        return descriptors;
     }
 }
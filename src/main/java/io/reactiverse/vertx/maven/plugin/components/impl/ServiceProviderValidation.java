@@ -0,0 +1,189 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Checks the {@code META-INF/services} descriptors of the archive against the classes of the archive.
+ * <p>
+ * Providers whose class is not in the archive would make {@link java.util.ServiceLoader} fail at runtime: they are
+ * removed from the descriptors, and listed in a report written next to the archive. The valid providers are also
+ * listed in a compact index, with one line per service: {@code service=provider1,provider2}.
+ */
+class ServiceProviderValidation {
+
+    /**
+     * The directory of the service descriptors, relative to the archive root.
+     */
+    static final String SERVICES = "META-INF/services/";
+
+    /**
+     * The path of the provider index, relative to the archive root.
+     */
+    static final String INDEX = "META-INF/vertx/service-providers.idx";
+
+    private static final String MULTI_RELEASE_ROOT = "META-INF/versions/";
+
+    private final Set<String> classes = new HashSet<>();
+
+    private final Map<String, List<String>> providers = new LinkedHashMap<>();
+
+    private final Map<String, List<String>> removed = new LinkedHashMap<>();
+
+    /**
+     * @param entries the paths of the archive entries, relative to the archive root
+     */
+    ServiceProviderValidation(Collection<String> entries) {
+        for (String entry : entries) {
+            String path = entry.startsWith("/") ? entry.substring(1) : entry;
+            if (!path.endsWith(".class")) {
+                continue;
+            }
+            if (path.startsWith(MULTI_RELEASE_ROOT)) {
+                // META-INF/versions/<version>/<class path>
+                int index = path.indexOf('/', MULTI_RELEASE_ROOT.length());
+                if (index == -1) {
+                    continue;
+                }
+                path = path.substring(index + 1);
+            }
+            classes.add(path.substring(0, path.length() - ".class".length()).replace('/', '.'));
+        }
+    }
+
+    /**
+     * @param path the path of an entry, relative to the archive root
+     * @return whether the entry is a service descriptor
+     */
+    static boolean isServiceDescriptor(String path) {
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        return name.startsWith(SERVICES) && name.length() > SERVICES.length()
+            && name.indexOf('/', SERVICES.length()) == -1;
+    }
+
+    /**
+     * Removes the providers that are not in the archive from a descriptor. Comments and blank lines are kept.
+     *
+     * @param path    the path of the descriptor
+     * @param content the content of the descriptor
+     * @return the content of the validated descriptor
+     * @throws IOException if the descriptor cannot be read
+     */
+    byte[] validate(String path, InputStream content) throws IOException {
+        String service = path.substring(path.lastIndexOf('/') + 1);
+        List<String> valid = providers.computeIfAbsent(service, k -> new ArrayList<>());
+        StringBuilder out = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String provider = provider(line);
+                if (!provider.isEmpty()) {
+                    if (!classes.contains(provider)) {
+                        removed.computeIfAbsent(service, k -> new ArrayList<>()).add(provider);
+                        continue;
+                    }
+                    if (!valid.contains(provider)) {
+                        valid.add(provider);
+                    }
+                }
+                out.append(line).append('\n');
+            }
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param content the content of a descriptor
+     * @return the providers declared in the descriptor
+     * @throws UncheckedIOException if the descriptor cannot be read
+     */
+    static List<String> providers(InputStream content) {
+        List<String> providers = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String provider = provider(line);
+                if (!provider.isEmpty()) {
+                    providers.add(provider);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return providers;
+    }
+
+    /**
+     * @return the provider declared by a line of a descriptor, empty for comments and blank lines
+     */
+    private static String provider(String line) {
+        int comment = line.indexOf('#');
+        return (comment == -1 ? line : line.substring(0, comment)).trim();
+    }
+
+    /**
+     * @return the provider index
+     */
+    byte[] index() {
+        StringBuilder out = new StringBuilder();
+        providers.forEach((service, list) -> out.append(service).append('=').append(String.join(",", list))
+            .append('\n'));
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Logs the removed providers and writes the report.
+     *
+     * @param jar the archive
+     * @param log the logger
+     */
+    void report(File jar, Log log) {
+        StringBuilder out = new StringBuilder();
+        removed.forEach((service, list) -> {
+            for (String provider : list) {
+                log.warn("Removing the provider " + provider + " of " + service
+                    + ", the class is not in the archive");
+                out.append(service).append('\t').append(provider).append('\n');
+            }
+        });
+        File report = report(jar);
+        try {
+            FileUtils.writeStringToFile(report, out.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Unable to write the service provider report " + report.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * @return the location of the report of the given archive
+     */
+    static File report(File jar) {
+        return new File(jar.getParentFile(), jar.getName() + ".services-report");
+    }
+
+    /**
+     * @return the removed providers, keyed by service
+     */
+    Map<String, List<String>> getRemoved() {
+        return removed;
+    }
+}
@@ -17,35 +17,35 @@
 package io.reactiverse.vertx.maven.plugin.components.impl;
 
 import io.reactiverse.vertx.maven.plugin.components.*;
+import io.reactiverse.vertx.maven.plugin.components.impl.merge.GroovyExtensionStrategy;
+import io.reactiverse.vertx.maven.plugin.components.impl.merge.Log4j2PluginsStrategy;
 import io.reactiverse.vertx.maven.plugin.mojos.Archive;
 import io.reactiverse.vertx.maven.plugin.mojos.DependencySet;
 import io.reactiverse.vertx.maven.plugin.mojos.FileItem;
 import io.reactiverse.vertx.maven.plugin.mojos.FileSet;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
-import org.apache.maven.shared.artifact.filter.resolve.ScopeFilter;
-import org.apache.maven.shared.artifact.filter.resolve.transform.ArtifactIncludeFilterTransformer;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.FileUtils;
-import org.codehaus.plexus.util.SelectorUtils;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
-import org.jboss.shrinkwrap.api.importer.ZipImporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
 /**
@@ -58,16 +58,6 @@ import java.util.jar.Manifest;
     hint = "fat-jar")
 public class ShrinkWrapFatJarPackageService implements PackageService {
 
-    private static final List<String> DEFAULT_EXCLUDES;
-
-    static {
-        DEFAULT_EXCLUDES = new ArrayList<>(FileUtils.getDefaultExcludesAsList());
-        DEFAULT_EXCLUDES.add("**/*.DSA");
-        DEFAULT_EXCLUDES.add("**/*.RSA");
-        DEFAULT_EXCLUDES.add("**/INDEX.LIST");
-        DEFAULT_EXCLUDES.add("**/*.SF");
-    }
-
     @Override
     public PackageType type() {
         return PackageType.FAT_JAR;
@@ -75,13 +65,25 @@ public class ShrinkWrapFatJarPackageService implements PackageService {
 
     @Override
     public File doPackage(PackageConfig config) throws PackagingException {
+        // Dependencies are read through the shared index if any, otherwise through an index owned by this packaging
+        if (config.getDependencyIndex() != null) {
+            return doPackage(config, config.getDependencyIndex());
+        }
+        try (DependencyIndex dependencies = new DependencyIndex()) {
+            return doPackage(config, dependencies);
+        }
+    }
+
+    private File doPackage(PackageConfig config, DependencyIndex dependencies) throws PackagingException {
 
         Log logger = Objects.requireNonNull(config.getMojo().getLog());
         Archive archive = Objects.requireNonNull(config.getArchive());
 
         JavaArchive jar = ShrinkWrap.create(JavaArchive.class);
 
-        addDependencies(config, archive.getDependencySets(), jar);
+        JandexIndexBuilder jandex = config.isJandexIndex() ? new JandexIndexBuilder() : null;
+
+        addDependencies(config, archive.getDependencySets(), dependencies, jandex, jar);
 
         addFileSets(config, archive, jar);
 
@@ -92,6 +94,23 @@ public class ShrinkWrapFatJarPackageService implements PackageService {
             embedFile(config, jar, item);
         }
 
+        if (config.isPrune()) {
+            Set<String> pruned = prune(config, archive, jar);
+            if (jandex != null) {
+                // The index must not list the removed classes
+                jandex.removeClasses(pruned);
+            }
+        }
+
+        if (jandex != null) {
+            addJandexIndex(config, archive, jandex, jar);
+        }
+
+        ServiceProviderValidation services = null;
+        if (config.isValidateServices()) {
+            services = validateServices(jar);
+        }
+
         // Generate manifest
         try {
             generateManifest(jar, archive.getManifest());
@@ -100,11 +119,24 @@ public class ShrinkWrapFatJarPackageService implements PackageService {
         }
 
         // Generate output file
-        File jarFile;
+        File jarFile = config.getOutput();
+        export(logger, jar, jarFile);
+        if (config.getOutputTimestamp() != null) {
+            makeReproducible(jarFile, config.getOutputTimestamp());
+        }
 
-        try {
-            jarFile = config.getOutput();
+        if (services != null) {
+            services.report(jarFile, logger);
+        }
 
+        return jarFile;
+    }
+
+    /**
+     * Writes the archive, replacing the output file if it already exists.
+     */
+    static void export(Log logger, JavaArchive jar, File jarFile) throws PackagingException {
+        try {
             boolean useTmpFile = false;
             File theCreatedFile = jarFile;
             if (jarFile.isFile()) {
@@ -124,18 +156,115 @@ public class ShrinkWrapFatJarPackageService implements PackageService {
         } catch (Exception e) {
             throw new PackagingException(e);
         }
+    }
 
-        return jarFile;
+    /**
+     * Sorts the entries of the written archive and normalizes their metadata.
+     */
+    static void makeReproducible(File jarFile, long timestamp) throws PackagingException {
+        try {
+            ReproducibleArchive.normalize(jarFile, timestamp);
+        } catch (IOException e) {
+            throw new PackagingException("Unable to make the archive " + jarFile.getAbsolutePath()
+                + " reproducible", e);
+        }
     }
 
-    private void addFileSets(PackageConfig config, Archive archive, JavaArchive jar) {
+    /**
+     * Removes the classes that cannot be reached from the project classes, the main class and verticle, the service
+     * providers, the classes named by the Log4j2 plugin caches and the Groovy extension modules, and the keep patterns.
+     *
+     * @return the paths of the removed class entries
+     */
+    private static Set<String> prune(PackageConfig config, Archive archive, JavaArchive jar) throws PackagingException {
+        Log logger = config.getMojo().getLog();
+        Map<ArchivePath, Node> content = jar.getContent();
+        List<String> paths = new ArrayList<>(content.size());
+        Set<String> roots = new LinkedHashSet<>();
+        roots.add(archive.getManifest().get("Main-Class"));
+        roots.add(archive.getManifest().get("Main-Verticle"));
+        roots.remove(null);
+        try {
+            for (Map.Entry<ArchivePath, Node> entry : content.entrySet()) {
+                String path = entry.getKey().get();
+                paths.add(path);
+                Asset asset = entry.getValue().getAsset();
+                if (asset == null) {
+                    continue;
+                }
+                // Classes loaded by name from the merged descriptors
+                if (GroovyExtensionStrategy.isExtensionModule(path)) {
+                    roots.addAll(GroovyExtensionStrategy.extensionClasses(asset.openStream()));
+                } else if (ServiceProviderValidation.isServiceDescriptor(path)) {
+                    roots.addAll(ServiceProviderValidation.providers(asset.openStream()));
+                } else if (Log4j2PluginsStrategy.isPluginCache(path)) {
+                    roots.addAll(Log4j2PluginsStrategy.pluginClasses(asset.openStream()));
+                }
+            }
+
+            if (archive.isIncludeClasses()) {
+                File classes = new File(config.getProject().getBuild().getOutputDirectory());
+                if (classes.isDirectory()) {
+                    DirectoryScanner scanner = new DirectoryScanner();
+                    scanner.setBasedir(classes);
+                    scanner.setIncludes(new String[]{"**/*.class"});
+                    scanner.scan();
+                    for (String path : scanner.getIncludedFiles()) {
+                        String name = path.replace(File.separatorChar, '/');
+                        roots.add(name.substring(0, name.length() - ".class".length()));
+                    }
+                }
+            }
+
+            Set<String> unreachable = new ClassPruner(config.getPruneKeeps()).unreachable(paths, roots,
+                path -> jar.get(path).getAsset().openStream());
+            for (String path : unreachable) {
+                logger.debug("Removing the unreachable class " + path);
+                jar.delete(path);
+            }
+            logger.info("Removed " + unreachable.size() + " unreachable class entries from the archive");
+            return unreachable;
+        } catch (IOException e) {
+            throw new PackagingException("Unable to compute the reachable classes", e);
+        } catch (UncheckedIOException e) {
+            throw new PackagingException("Unable to compute the reachable classes", e.getCause());
+        }
+    }
+
+    /**
+     * Removes the service providers whose class is not in the archive, and adds the index of the providers.
+     */
+    private static ServiceProviderValidation validateServices(JavaArchive jar) throws PackagingException {
+        Map<ArchivePath, Node> content = jar.getContent();
+        List<String> paths = new ArrayList<>(content.size());
+        content.keySet().forEach(path -> paths.add(path.get()));
+        Map<String, Asset> descriptors = new LinkedHashMap<>();
+        content.forEach((path, node) -> {
+            if (node.getAsset() != null && ServiceProviderValidation.isServiceDescriptor(path.get())) {
+                descriptors.put(path.get(), node.getAsset());
+            }
+        });
+        ServiceProviderValidation validation = new ServiceProviderValidation(paths);
+        for (Map.Entry<String, Asset> descriptor : descriptors.entrySet()) {
+            String path = descriptor.getKey();
+            try {
+                jar.add(new ByteArrayAsset(validation.validate(path, descriptor.getValue().openStream())), path);
+            } catch (IOException e) {
+                throw new PackagingException("Unable to read the service descriptor " + path, e);
+            }
+        }
+        jar.add(new ByteArrayAsset(validation.index()), ServiceProviderValidation.INDEX);
+        return validation;
+    }
+
+    static void addFileSets(PackageConfig config, Archive archive, JavaArchive jar) {
         Log logger = config.getMojo().getLog();
         for (FileSet fs : archive.getFileSets()) {
             embedFileSet(logger, config.getProject(), fs, jar);
         }
     }
 
-    private static void addProjectClasses(PackageConfig config, Archive archive, JavaArchive jar) {
+    static void addProjectClasses(PackageConfig config, Archive archive, JavaArchive jar) {
         if (archive.isIncludeClasses()) {
             File classes = new File(config.getProject().getBuild().getOutputDirectory());
             if (classes.isDirectory()) {
@@ -144,20 +273,35 @@ public class ShrinkWrapFatJarPackageService implements PackageService {
         }
     }
 
-    private void addDependencies(PackageConfig config, Collection<DependencySet> dependencies, JavaArchive jar) {
+    /**
+     * Adds the index of the project classes, merged with the indexes of the embedded dependencies.
+     */
+    static void addJandexIndex(PackageConfig config, Archive archive, JandexIndexBuilder jandex,
+                               JavaArchive jar) throws PackagingException {
+        try {
+            if (archive.isIncludeClasses()) {
+                jandex.addProjectClasses(new File(config.getProject().getBuild().getOutputDirectory()));
+            }
+            jar.add(new ByteArrayAsset(jandex.toByteArray()), JandexIndexBuilder.PATH);
+        } catch (IOException e) {
+            throw new PackagingException("Unable to build the Jandex index", e);
+        }
+    }
+
+    private void addDependencies(PackageConfig config, Collection<DependencySet> sets, DependencyIndex dependencies,
+                                 JandexIndexBuilder jandex, JavaArchive jar) throws PackagingException {
         Log logger = config.getMojo().getLog();
-        for (DependencySet ds : dependencies) {
-            ScopeFilter scopeFilter = ServiceUtils.newScopeFilter(ds.getScope());
-            ArtifactFilter filter = new ArtifactIncludeFilterTransformer().transform(scopeFilter);
-            Set<Artifact> artifacts = ServiceUtils.filterArtifacts(config.getArtifacts(),
-                ds.getIncludes(), ds.getExcludes(),
-                ds.isUseTransitiveDependencies(), logger, filter);
+        // Paths of the entries embedded so far, dependencies being added first to the archive
+        Set<String> embedded = new HashSet<>();
+        for (DependencySet ds : sets) {
+            Set<Artifact> artifacts = ServiceUtils.filterArtifacts(config.getArtifacts(), ds, logger);
+            DependencyEntryFilter filter = new DependencyEntryFilter(ds);
 
             for (Artifact artifact : artifacts) {
                 File file = artifact.getFile();
                 if (file.isFile()) {
                     logger.debug("Adding Dependency :" + artifact);
-                    embedDependency(logger, ds, jar, file);
+                    embedDependency(logger, filter, embedded, dependencies, jandex, jar, file);
                 } else {
                     logger.warn("Cannot embed artifact " + artifact
                         + " - the file does not exist");
@@ -166,7 +310,7 @@ public class ShrinkWrapFatJarPackageService implements PackageService {
         }
     }
 
-    private static void embedFile(PackageConfig config, JavaArchive jar, FileItem item) throws PackagingException {
+    static void embedFile(PackageConfig config, JavaArchive jar, FileItem item) throws PackagingException {
         String path;
         if (item.getOutputDirectory() == null) {
             path = "/";
@@ -252,107 +396,81 @@ public class ShrinkWrapFatJarPackageService implements PackageService {
     }
 
 
-    private boolean toExclude(DependencySet set, ArchivePath path) {
-        String name = path.get();
-
-        // Check whether the file is explicitly included
-        if (isExplicitlyIncluded(set, name)) {
-            return true;
-        }
-
-        if (set.getOptions().isUseDefaultExcludes()) {
-            for (String pattern : DEFAULT_EXCLUDES) {
-                if (SelectorUtils.match(pattern, name)) {
-                    return true;
-                }
-            }
-        }
-
-        if (name.equalsIgnoreCase("/META-INF/MANIFEST.MF")) {
-            return true;
-        }
-
-        if (name.equals("/module-info.class")){
-            return true;
+    /**
+     * Adds the entries of the dependency listed in the index. The content of the entries is only read when the
+     * archive is exported.
+     *
+     * @param log          the logger
+     * @param filter       the filter applied to the entries of the dependency
+     * @param embedded     the paths already embedded in the archive, updated with the paths of the embedded entries
+     * @param dependencies the dependency index
+     * @param jandex       the Jandex index receiving the index of the dependency, {@code null} if disabled
+     * @param jar          the archive
+     * @param file         the file, must not be {@code null}
+     */
+    private void embedDependency(Log log, DependencyEntryFilter filter, Set<String> embedded,
+                                 DependencyIndex dependencies, JandexIndexBuilder jandex, JavaArchive jar,
+                                 File file) throws PackagingException {
+        List<ZipArchiveEntry> entries;
+        try {
+            entries = dependencies.getEntries(file);
+        } catch (IOException e) {
+            throw new PackagingException("Unable to read the file " + file.getAbsolutePath(), e);
         }
-
-        if (set.getOptions().getExcludes() != null) {
-            for (String pattern : set.getOptions().getExcludes()) {
-                if (SelectorUtils.match(pattern, name)) {
-                    return true;
+        for (ZipArchiveEntry entry : entries) {
+            ArchivePath path = ArchivePaths.create(entry.getName());
+            String name = path.get();
+            if (embedded.contains(name)) {
+                log.debug(name + " already embedded in the jar");
+            } else if (filter.isExcluded(name)) {
+                log.debug("Excluding " + name + " from " + file.getName());
+            } else if (jandex != null && JandexIndexBuilder.PATH.equals(name)) {
+                // Merged into the index of the archive
+                addDependencyIndex(log, dependencies, jandex, file, entry);
+            } else {
+                markAsEmbedded(embedded, name);
+                if (entry.isDirectory()) {
+                    jar.addAsDirectory(path);
+                } else {
+                    jar.add(() -> {
+                        try {
+                            return dependencies.getInputStream(file, entry);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Unable to read " + name + " from "
+                                + file.getAbsolutePath(), e);
+                        }
+                    }, path);
                 }
             }
         }
-
-        return false;
     }
 
-    private static boolean isExplicitlyIncluded(DependencySet set, String name) {
-        List<String> includes = set.getOptions().getIncludes();
-        if (includes != null && !includes.isEmpty()) {
-            boolean included = false;
-
-            // Check for each include pattern whether or not the path is explicitly included
-            for (String pattern : includes) {
-                if (SelectorUtils.match(pattern, name)) {
-                    included = true;
-                }
-            }
-
-            // If the path is not included, exclude the file
-            // otherwise apply the excludes pattern on it.
-            return !included;
+    private static void addDependencyIndex(Log log, DependencyIndex dependencies, JandexIndexBuilder jandex, File file,
+                                           ZipArchiveEntry entry) {
+        try (InputStream is = dependencies.getInputStream(file, entry)) {
+            jandex.addDependencyIndex(is);
+        } catch (IOException e) {
+            log.warn("Ignoring the Jandex index of " + file.getName() + ": " + e.getMessage());
         }
-        return false;
     }
 
     /**
-     * Import from file and make sure the file is closed.
-     *
-     * @param log  the logger
-     * @param set  the dependency set
-     * @param jar  the archive
-     * @param file the file, must not be {@code null}
+     * Records the path and its parent directories, which the archive creates implicitly.
      */
-    private void embedDependency(Log log, DependencySet set, JavaArchive jar, File file) {
-        try (FileInputStream fis = new FileInputStream(file)) {
-            jar.as(ZipImporter.class).importFrom(fis, path -> {
-                if (jar.contains(path)) {
-                    log.debug(path.get() + " already embedded in the jar");
-                    return false;
-                }
-                if (!toExclude(set, path)) {
-                    return true;
-                } else {
-                    log.debug("Excluding " + path.get() + " from " + file.getName());
-                    return false;
-                }
-            });
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to read the file " + file.getAbsolutePath(), e);
+    private static void markAsEmbedded(Set<String> embedded, String path) {
+        int index = path.length();
+        while (index > 0 && embedded.add(path.substring(0, index))) {
+            index = path.lastIndexOf('/', index - 1);
         }
     }
 
     /**
      * Generate the manifest for the über jar.
      */
-    private static void generateManifest(JavaArchive jar, Map<String, String> entries) throws IOException {
-        Manifest manifest = new Manifest();
-        Attributes attributes = manifest.getMainAttributes();
-        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
-
-        if (!entries.containsKey("Multi-Release")) {
-            Node multiReleaseNode = jar.get("/META-INF/versions");
-            if (multiReleaseNode != null && !multiReleaseNode.getChildren().isEmpty()) {
-                attributes.put(new Attributes.Name("Multi-Release"), Boolean.TRUE.toString());
-            }
-        }
-
-        if (entries != null) {
-            for (Map.Entry<String, String> entry : entries.entrySet()) {
-                attributes.put(new Attributes.Name(entry.getKey()), entry.getValue());
-            }
-        }
+    static void generateManifest(JavaArchive jar, Map<String, String> entries) throws IOException {
+        Node multiReleaseNode = jar.get("/META-INF/versions");
+        boolean multiRelease = multiReleaseNode != null && !multiReleaseNode.getChildren().isEmpty();
+        Manifest manifest = ServiceUtils.createManifest(entries, multiRelease);
 
         ByteArrayOutputStream bout = new ByteArrayOutputStream();
         manifest.write(bout);
@@ -0,0 +1,870 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import io.reactiverse.vertx.maven.plugin.components.*;
+import io.reactiverse.vertx.maven.plugin.mojos.Archive;
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySet;
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySetOptions;
+import io.reactiverse.vertx.maven.plugin.mojos.FileItem;
+import io.reactiverse.vertx.maven.plugin.mojos.FileSet;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Service packaging the fat jar without building it in memory.
+ * <p>
+ * The content of the archive is first computed as an ordered map of entry names to their source (a dependency entry
+ * or a project file), applying the same precedence rules as {@link ShrinkWrapFatJarPackageService}: dependencies
+ * are embedded on a first-wins basis, file sets, project classes and file items override what was added before.
+ * Then the entries are copied straight from their source to the output stream.
+ * <p>
+ * Dependency entries are copied without being inflated and deflated again: their compressed bytes, CRC and sizes are
+ * taken as-is from the dependency. Only project files (including the combined SPI files) and the manifest are
+ * compressed.
+ * <p>
+ * Dependencies are scanned and project files compressed on a {@link ForkJoinPool} sized by
+ * {@link PackageConfig#getThreads()}, while a single writer appends the entries in a deterministic order.
+ * <p>
+ * When {@link PackageConfig#isIncremental()} is enabled, a {@link PackageIndex} is written next to the archive. The
+ * next build copies the entries whose source did not change from the previous archive, and skips the dependency
+ * scan altogether if the selected dependencies did not change.
+ */
+@Component(
+    role = PackageService.class,
+    hint = "fat-jar-streaming")
+public class StreamingFatJarPackageService implements PackageService {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final String MULTI_RELEASE_ROOT = "META-INF/versions/";
+
+    @Override
+    public PackageType type() {
+        return PackageType.FAT_JAR;
+    }
+
+    @Override
+    public File doPackage(PackageConfig config) throws PackagingException {
+        Archive archive = Objects.requireNonNull(config.getArchive());
+        Log logger = config.getMojo().getLog();
+        if (config.isJandexIndex()) {
+            logger.warn("The Jandex index is only generated by the fat-jar packager, ignoring it");
+        }
+        if (config.isPrune()) {
+            logger.warn("Unreachable classes are only pruned by the fat-jar packager, ignoring it");
+        }
+
+        int threads = config.getThreads() > 0 ? config.getThreads() : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        File jarFile = config.getOutput();
+        File theCreatedFile = jarFile;
+        if (jarFile.isFile()) {
+            theCreatedFile = new File(jarFile.getParentFile(), jarFile.getName() + ".tmp");
+        }
+
+        PackageIndex index = null;
+        PackageIndex previous = null;
+        ZipFile previousJar = null;
+        if (config.isIncremental()) {
+            index = new PackageIndex();
+            previous = PackageIndex.read(jarFile, logger);
+            if (previous != null) {
+                try {
+                    previousJar = ZipFile.builder().setFile(jarFile).get();
+                } catch (IOException e) {
+                    logger.debug("Unable to read the previous archive " + jarFile.getAbsolutePath(), e);
+                    previous = null;
+                }
+            }
+        }
+
+        // Keys are paths relative to the archive root, without trailing slash for directories.
+        Map<String, Source> entries = new LinkedHashMap<>();
+        // Dependencies are read through the shared index if any, otherwise through an index owned by this packaging
+        DependencyIndex dependencies = config.getDependencyIndex() != null ? config.getDependencyIndex()
+            : new DependencyIndex();
+        ServiceProviderValidation services = null;
+        try {
+            addDependencies(config, archive.getDependencySets(), entries, dependencies, pool, index, previous,
+                previousJar);
+
+            addFileSets(config, archive, entries);
+
+            addProjectClasses(config, archive, entries);
+
+            // File Items
+            for (FileItem item : archive.getFiles()) {
+                embedFile(config, entries, item);
+            }
+
+            if (previous != null) {
+                reuseProjectFiles(logger, entries, previous, previousJar);
+            }
+
+            if (config.isValidateServices()) {
+                services = validateServices(entries);
+            }
+
+            write(config, archive, entries, pool, threads, theCreatedFile);
+            if (config.getOutputTimestamp() != null) {
+                // Before the rename, so that the package index is bound to the normalized archive
+                ShrinkWrapFatJarPackageService.makeReproducible(theCreatedFile, config.getOutputTimestamp());
+            }
+        } finally {
+            pool.shutdownNow();
+            if (dependencies != config.getDependencyIndex()) {
+                dependencies.close();
+            }
+            if (previousJar != null) {
+                close(logger, previousJar);
+            }
+        }
+
+        if (theCreatedFile != jarFile) {
+            try {
+                boolean delete = Files.deleteIfExists(jarFile.toPath());
+                boolean renameTo = theCreatedFile.renameTo(jarFile);
+                logger.debug("Main jar file deleted: " + delete);
+                logger.debug("Main jar file replaced by temporary file: " + renameTo);
+            } catch (IOException e) {
+                throw new PackagingException(e);
+            }
+        }
+
+        if (services != null) {
+            services.report(jarFile, logger);
+        }
+
+        if (index != null) {
+            for (Map.Entry<String, Source> entry : entries.entrySet()) {
+                String fingerprint = entry.getValue().fingerprint();
+                if (fingerprint != null) {
+                    index.addEntry(entry.getKey(), fingerprint);
+                }
+            }
+            try {
+                index.write(jarFile);
+            } catch (IOException e) {
+                logger.warn("Unable to write the package index of " + jarFile.getAbsolutePath(), e);
+            }
+        }
+
+        return jarFile;
+    }
+
+    private static void close(Log logger, ZipFile zip) {
+        try {
+            zip.close();
+        } catch (IOException e) {
+            logger.debug("Unable to close " + zip, e);
+        }
+    }
+
+    /**
+     * Scans the dependencies in parallel, then adds their entries in the iteration order of the artifacts, so that
+     * the first artifact providing an entry wins.
+     * <p>
+     * When building incrementally and the dependency selection has not changed since the previous build, the
+     * dependencies are not scanned: the entries recorded in the previous index are used instead.
+     */
+    private void addDependencies(PackageConfig config, Collection<DependencySet> sets, Map<String, Source> entries,
+                                 DependencyIndex dependencies, ForkJoinPool pool, PackageIndex index,
+                                 PackageIndex previous, ZipFile previousJar) throws PackagingException {
+        Log logger = config.getMojo().getLog();
+        List<Selection> selections = new ArrayList<>();
+        for (DependencySet ds : sets) {
+            Set<Artifact> artifacts = ServiceUtils.filterArtifacts(config.getArtifacts(), ds, logger);
+            selections.add(new Selection(ds, artifacts));
+        }
+
+        if (index != null) {
+            index.setDependencies(digest(selections));
+            if (previous != null && index.getDependencies().equals(previous.getDependencies())
+                && reuseDependencies(entries, dependencies, previous, previousJar)) {
+                logger.debug("Dependencies unchanged since the previous build, reusing the previous archive entries");
+                for (PackageIndex.PlannedEntry planned : previous.getPlan()) {
+                    index.addPlannedEntry(planned.name, planned.artifact, planned.entry);
+                }
+                return;
+            }
+            entries.clear();
+        }
+
+        List<ForkJoinTask<List<ZipEntrySource>>> scans = new ArrayList<>();
+        for (Selection selection : selections) {
+            DependencyEntryFilter filter = new DependencyEntryFilter(selection.set);
+            for (Artifact artifact : selection.artifacts) {
+                File file = artifact.getFile();
+                if (file.isFile()) {
+                    logger.debug("Adding Dependency :" + artifact);
+                    scans.add(pool.submit(() -> scanDependency(logger, filter, dependencies, file)));
+                } else {
+                    logger.warn("Cannot embed artifact " + artifact
+                        + " - the file does not exist");
+                }
+            }
+        }
+
+        for (ForkJoinTask<List<ZipEntrySource>> scan : scans) {
+            List<ZipEntrySource> candidates;
+            try {
+                candidates = scan.join();
+            } catch (UncheckedIOException e) {
+                throw new PackagingException(e.getMessage(), e.getCause());
+            }
+            for (ZipEntrySource candidate : candidates) {
+                if (entries.containsKey(candidate.name)) {
+                    logger.debug("/" + candidate.name + " already embedded in the jar");
+                } else if (candidate.isDirectory()) {
+                    entries.put(candidate.name, Source.DIRECTORY);
+                    if (index != null) {
+                        index.addPlannedEntry(candidate.name, null, candidate.entry.getName());
+                    }
+                } else {
+                    entries.put(candidate.name, candidate);
+                    if (index != null) {
+                        index.addPlannedEntry(candidate.name, candidate.artifact.getAbsolutePath(),
+                            candidate.entry.getName());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the dependency entries from the plan of the previous build. Entries are copied from the previous
+     * archive when possible, otherwise from their dependency.
+     *
+     * @return {@code false} if an entry of the plan cannot be found, meaning the dependencies must be scanned
+     */
+    private static boolean reuseDependencies(Map<String, Source> entries, DependencyIndex dependencies,
+                                             PackageIndex previous, ZipFile previousJar) {
+        Map<String, String> stamps = new HashMap<>();
+        for (PackageIndex.PlannedEntry planned : previous.getPlan()) {
+            if (planned.artifact == null) {
+                entries.put(planned.name, Source.DIRECTORY);
+                continue;
+            }
+            File artifact = new File(planned.artifact);
+            String fingerprint = stamps.computeIfAbsent(planned.artifact, a -> PackageIndex.stamp(artifact))
+                + "!" + planned.entry;
+            ZipArchiveEntry entry = null;
+            if (fingerprint.equals(previous.getFingerprint(planned.name))) {
+                entry = previousJar.getEntry(planned.name);
+            }
+            if (entry != null) {
+                entries.put(planned.name, new ZipEntrySource(planned.name, artifact, fingerprint, previousJar, entry));
+                continue;
+            }
+            try {
+                ZipFile zip = open(dependencies, artifact);
+                entry = zip.getEntry(planned.entry);
+                if (entry == null) {
+                    return false;
+                }
+                entries.put(planned.name, new ZipEntrySource(planned.name, artifact, fingerprint, zip, entry));
+            } catch (UncheckedIOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the project files which have not changed since the previous build by the entries of the previous
+     * archive, so they are not compressed again.
+     */
+    private static void reuseProjectFiles(Log logger, Map<String, Source> entries, PackageIndex previous,
+                                          ZipFile previousJar) {
+        int reused = 0;
+        for (Map.Entry<String, Source> entry : entries.entrySet()) {
+            Source source = entry.getValue();
+            if (source instanceof FileSource) {
+                String fingerprint = source.fingerprint();
+                ZipArchiveEntry previousEntry = fingerprint.equals(previous.getFingerprint(entry.getKey()))
+                    ? previousJar.getEntry(entry.getKey()) : null;
+                if (previousEntry != null) {
+                    entry.setValue(new ZipEntrySource(entry.getKey(), ((FileSource) source).file, fingerprint,
+                        previousJar, previousEntry));
+                    reused++;
+                }
+            }
+        }
+        logger.debug(reused + " project file(s) reused from the previous archive");
+    }
+
+    /**
+     * Computes a digest of the selected dependencies and of the options used to embed them.
+     */
+    private static String digest(List<Selection> selections) throws PackagingException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new PackagingException(e);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Selection selection : selections) {
+            DependencySetOptions options = selection.set.getOptions();
+            builder.append("set:").append(options.getIncludes()).append(options.getExcludes())
+                .append(options.isUseDefaultExcludes()).append('\n');
+            for (Artifact artifact : selection.artifacts) {
+                builder.append(artifact.getId()).append('|').append(PackageIndex.stamp(artifact.getFile()))
+                    .append('\n');
+            }
+        }
+        byte[] bytes = digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static ZipFile open(DependencyIndex dependencies, File file) {
+        try {
+            return dependencies.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Lists the entries of the dependency which are not excluded.
+     *
+     * @param log          the logger
+     * @param filter       the filter applied to the entries of the dependency
+     * @param dependencies the dependency index
+     * @param artifact     the dependency file
+     * @return the candidate entries, in the order of the dependency central directory
+     */
+    private static List<ZipEntrySource> scanDependency(Log log, DependencyEntryFilter filter,
+                                                       DependencyIndex dependencies, File artifact) {
+        ZipFile zip = open(dependencies, artifact);
+        List<ZipArchiveEntry> entries;
+        try {
+            entries = dependencies.getEntries(artifact);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the file " + artifact.getAbsolutePath(), e);
+        }
+        String stamp = PackageIndex.stamp(artifact);
+        List<ZipEntrySource> candidates = new ArrayList<>();
+        for (ZipArchiveEntry entry : entries) {
+            String name = normalize(entry.getName());
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (filter.isExcluded("/" + name)) {
+                log.debug("Excluding /" + name + " from " + zip);
+                continue;
+            }
+            candidates.add(new ZipEntrySource(name, artifact, stamp + "!" + entry.getName(), zip, entry));
+        }
+        return candidates;
+    }
+
+    private static void addFileSets(PackageConfig config, Archive archive, Map<String, Source> entries) {
+        Log logger = config.getMojo().getLog();
+        for (FileSet fs : archive.getFileSets()) {
+            embedFileSet(logger, config.getProject(), fs, entries);
+        }
+    }
+
+    private static void embedFileSet(Log log, MavenProject project, FileSet fs, Map<String, Source> entries) {
+        File directory = new File(fs.getDirectory());
+        if (!directory.isAbsolute()) {
+            directory = new File(project.getBasedir(), fs.getDirectory());
+        }
+
+        if (!directory.isDirectory()) {
+            log.warn("File set root directory (" + directory.getAbsolutePath() + ") does not exist " +
+                "- skipping");
+            return;
+        }
+
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(directory);
+
+        String outputDirectory = normalize(fs.getOutputDirectory() == null ? "" : fs.getOutputDirectory());
+        if (!outputDirectory.isEmpty()) {
+            outputDirectory = outputDirectory + "/";
+        }
+
+        List<String> excludes = new ArrayList<>(fs.getExcludes());
+        if (fs.isUseDefaultExcludes()) {
+            excludes.addAll(FileUtils.getDefaultExcludesAsList());
+        }
+        if (!excludes.isEmpty()) {
+            scanner.setExcludes(excludes.toArray(new String[0]));
+        }
+        if (!fs.getIncludes().isEmpty()) {
+            scanner.setIncludes(fs.getIncludes().toArray(new String[0]));
+        }
+        scanner.scan();
+        String[] files = scanner.getIncludedFiles();
+        for (String path : files) {
+            File file = new File(directory, path);
+            String name = outputDirectory + path.replace(File.separatorChar, '/');
+            log.debug("Adding /" + name + " to the archive");
+            entries.put(name, new FileSource(file));
+        }
+    }
+
+    private static void addProjectClasses(PackageConfig config, Archive archive, Map<String, Source> entries) {
+        if (archive.isIncludeClasses()) {
+            File classes = new File(config.getProject().getBuild().getOutputDirectory());
+            if (classes.isDirectory()) {
+                addDirectory(classes, "", entries);
+            }
+        }
+    }
+
+    private static void addDirectory(File directory, String prefix, Map<String, Source> entries) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = prefix + file.getName();
+            if (file.isDirectory()) {
+                entries.put(name, Source.DIRECTORY);
+                addDirectory(file, name + "/", entries);
+            } else {
+                entries.put(name, new FileSource(file));
+            }
+        }
+    }
+
+    private static void embedFile(PackageConfig config, Map<String, Source> entries, FileItem item)
+        throws PackagingException {
+        String path = normalize(item.getOutputDirectory() == null ? "" : item.getOutputDirectory());
+        if (!path.isEmpty()) {
+            path = path + "/";
+        }
+
+        File source = new File(config.getProject().getBasedir(), item.getSource());
+        if (!source.isFile()) {
+            String key = normalize(item.getSource());
+            Source node = entries.get(key);
+            if (node == null || node.isDirectory()) {
+                throw new PackagingException("Unable to handle the file item " + item.getSource() + ", " +
+                    "file not found in the project or in the archive.");
+            }
+
+            String name = item.getDestName();
+            if (name == null) {
+                name = key.substring(key.lastIndexOf('/') + 1);
+            }
+
+            entries.put(path + name, node);
+            entries.remove(key);
+        } else {
+            String name = item.getDestName();
+            if (name == null) {
+                name = source.getName();
+            }
+            entries.put(path + name, new FileSource(source));
+        }
+    }
+
+    /**
+     * Removes the service providers whose class is not in the archive, and adds the index of the providers.
+     */
+    private static ServiceProviderValidation validateServices(Map<String, Source> entries) throws PackagingException {
+        ServiceProviderValidation validation = new ServiceProviderValidation(entries.keySet());
+        for (Map.Entry<String, Source> entry : entries.entrySet()) {
+            Source source = entry.getValue();
+            if (!source.isDirectory() && ServiceProviderValidation.isServiceDescriptor(entry.getKey())) {
+                try {
+                    entry.setValue(new BytesSource(validation.validate(entry.getKey(), source.open()),
+                        source.lastModified()));
+                } catch (IOException e) {
+                    throw new PackagingException("Unable to read the service descriptor " + entry.getKey(), e);
+                }
+            }
+        }
+        entries.put(ServiceProviderValidation.INDEX, new BytesSource(validation.index(), System.currentTimeMillis()));
+        return validation;
+    }
+
+    private static void write(PackageConfig config, Archive archive, Map<String, Source> entries,
+                              ForkJoinPool pool, int threads, File theCreatedFile) throws PackagingException {
+        boolean multiRelease = false;
+        for (String name : entries.keySet()) {
+            if (name.startsWith(MULTI_RELEASE_ROOT)) {
+                multiRelease = true;
+                break;
+            }
+        }
+        Manifest manifest = ServiceUtils.createManifest(archive.getManifest(), multiRelease);
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        Set<String> directories = new HashSet<>();
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(theCreatedFile)) {
+
+            // The manifest must be the first entry of the archive.
+            writeDirectories(out, MANIFEST, directories);
+            out.putArchiveEntry(new ZipArchiveEntry(MANIFEST));
+            manifest.write(out);
+            out.closeArchiveEntry();
+
+            // Project files are compressed in parallel, a bounded number of entries ahead of the writer.
+            // The writer consumes them in order, so the output does not depend on the scheduling.
+            int window = threads * 4;
+            Deque<PendingEntry> pending = new ArrayDeque<>(window);
+            Iterator<Map.Entry<String, Source>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                while (iterator.hasNext() && pending.size() < window) {
+                    Map.Entry<String, Source> entry = iterator.next();
+                    String name = entry.getKey();
+                    if (!MANIFEST.equals(name)) {
+                        pending.add(new PendingEntry(name, entry.getValue(), pool));
+                    }
+                }
+                PendingEntry next = pending.poll();
+                if (next == null) {
+                    continue;
+                }
+                if (next.source.isDirectory()) {
+                    writeDirectories(out, next.name + "/", directories);
+                } else {
+                    writeDirectories(out, next.name, directories);
+                    next.write(out, buffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new PackagingException(e);
+        } catch (UncheckedIOException e) {
+            throw new PackagingException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes the entries of the parent directories of the given entry, if not already written.
+     */
+    private static void writeDirectories(ZipArchiveOutputStream out, String name, Set<String> directories)
+        throws IOException {
+        int index = name.indexOf('/');
+        while (index != -1) {
+            String directory = name.substring(0, index + 1);
+            if (directories.add(directory)) {
+                out.putArchiveEntry(new ZipArchiveEntry(directory));
+                out.closeArchiveEntry();
+            }
+            index = name.indexOf('/', index + 1);
+        }
+    }
+
+    /**
+     * @return the path relative to the archive root, without leading or trailing slash
+     */
+    private static String normalize(String path) {
+        int begin = 0;
+        int end = path.length();
+        while (begin < end && path.charAt(begin) == '/') {
+            begin++;
+        }
+        while (end > begin && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(begin, end);
+    }
+
+    /**
+     * The artifacts selected by a dependency set.
+     */
+    private static class Selection {
+
+        private final DependencySet set;
+        private final Set<Artifact> artifacts;
+
+        Selection(DependencySet set, Set<Artifact> artifacts) {
+            this.set = set;
+            this.artifacts = artifacts;
+        }
+    }
+
+    /**
+     * The origin of an entry of the archive.
+     */
+    private abstract static class Source {
+
+        static final Source DIRECTORY = new Source() {
+            @Override
+            boolean isDirectory() {
+                return true;
+            }
+
+            @Override
+            long lastModified() {
+                return -1;
+            }
+
+            @Override
+            InputStream open() {
+                throw new UnsupportedOperationException("Directories have no content");
+            }
+        };
+
+        boolean isDirectory() {
+            return false;
+        }
+
+        abstract long lastModified();
+
+        abstract InputStream open() throws IOException;
+
+        /**
+         * @return a fingerprint of the source, used to detect changes between incremental builds, {@code null} for
+         * directories
+         */
+        String fingerprint() {
+            return null;
+        }
+
+        /**
+         * Writes the content as a new entry of the output, compressing it.
+         */
+        void write(String name, ZipArchiveOutputStream out, byte[] buffer) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setTime(lastModified());
+            out.putArchiveEntry(entry);
+            try (InputStream is = open()) {
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            out.closeArchiveEntry();
+        }
+    }
+
+    private static class FileSource extends Source {
+
+        private final File file;
+
+        FileSource(File file) {
+            this.file = file;
+        }
+
+        @Override
+        long lastModified() {
+            return file.lastModified();
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        @Override
+        String fingerprint() {
+            return PackageIndex.stamp(file);
+        }
+
+        /**
+         * Deflates the file content in memory, so that the writer only has to copy the compressed bytes.
+         */
+        CompressedEntry compress() {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            CRC32 crc = new CRC32();
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(file.length(), BUFFER_SIZE));
+            long size = 0;
+            try (InputStream is = open();
+                 DeflaterOutputStream dos = new DeflaterOutputStream(bytes, deflater, BUFFER_SIZE)) {
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    dos.write(buffer, 0, read);
+                    size += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read the file " + file.getAbsolutePath(), e);
+            } finally {
+                deflater.end();
+            }
+            return new CompressedEntry(bytes.toByteArray(), crc.getValue(), size, lastModified());
+        }
+    }
+
+    /**
+     * Content generated by the packaging.
+     */
+    private static class BytesSource extends Source {
+
+        private final byte[] content;
+        private final long time;
+
+        BytesSource(byte[] content, long time) {
+            this.content = content;
+            this.time = time;
+        }
+
+        @Override
+        long lastModified() {
+            return time;
+        }
+
+        @Override
+        InputStream open() {
+            return new ByteArrayInputStream(content);
+        }
+    }
+
+    private static class CompressedEntry {
+
+        private final byte[] data;
+        private final long crc;
+        private final long size;
+        private final long time;
+
+        CompressedEntry(byte[] data, long crc, long size, long time) {
+            this.data = data;
+            this.crc = crc;
+            this.size = size;
+            this.time = time;
+        }
+
+        void write(String name, ZipArchiveOutputStream out) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setMethod(ZipEntry.DEFLATED);
+            entry.setCrc(crc);
+            entry.setSize(size);
+            entry.setCompressedSize(data.length);
+            entry.setTime(time);
+            out.addRawArchiveEntry(entry, new ByteArrayInputStream(data));
+        }
+    }
+
+    /**
+     * An entry waiting to be written, possibly being compressed in the background.
+     */
+    private static class PendingEntry {
+
+        private final String name;
+        private final Source source;
+        private final ForkJoinTask<CompressedEntry> compression;
+
+        PendingEntry(String name, Source source, ForkJoinPool pool) {
+            this.name = name;
+            this.source = source;
+            this.compression = source instanceof FileSource ? pool.submit(((FileSource) source)::compress) : null;
+        }
+
+        void write(ZipArchiveOutputStream out, byte[] buffer) throws IOException {
+            if (compression != null) {
+                compression.join().write(name, out);
+            } else {
+                source.write(name, out, buffer);
+            }
+        }
+    }
+
+    private static class ZipEntrySource extends Source {
+
+        private final String name;
+        private final File artifact;
+        private final String fingerprint;
+        private final ZipFile zip;
+        private final ZipArchiveEntry entry;
+
+        /**
+         * @param name        the name of the entry in the output
+         * @param artifact    the file the entry comes from
+         * @param fingerprint the fingerprint of the entry content
+         * @param zip         the archive containing the entry, either the dependency or the previous output
+         * @param entry       the entry
+         */
+        ZipEntrySource(String name, File artifact, String fingerprint, ZipFile zip, ZipArchiveEntry entry) {
+            this.name = name;
+            this.artifact = artifact;
+            this.fingerprint = fingerprint;
+            this.zip = zip;
+            this.entry = entry;
+        }
+
+        @Override
+        String fingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        boolean isDirectory() {
+            return entry.isDirectory();
+        }
+
+        @Override
+        long lastModified() {
+            return entry.getTime();
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return zip.getInputStream(entry);
+        }
+
+        /**
+         * Copies the compressed bytes of the entry, along with its CRC and sizes, without inflating them.
+         */
+        @Override
+        void write(String name, ZipArchiveOutputStream out, byte[] buffer) throws IOException {
+            int method = entry.getMethod();
+            if ((method != ZipEntry.DEFLATED && method != ZipEntry.STORED)
+                || entry.getCrc() == ZipArchiveEntry.CRC_UNKNOWN
+                || entry.getSize() == ZipArchiveEntry.SIZE_UNKNOWN
+                || entry.getCompressedSize() == ZipArchiveEntry.SIZE_UNKNOWN) {
+                super.write(name, out, buffer);
+                return;
+            }
+            ZipArchiveEntry copy = new ZipArchiveEntry(name);
+            copy.setMethod(method);
+            copy.setCrc(entry.getCrc());
+            copy.setSize(entry.getSize());
+            copy.setCompressedSize(entry.getCompressedSize());
+            copy.setTime(entry.getTime());
+            try (InputStream raw = zip.getRawInputStream(entry)) {
+                out.addRawArchiveEntry(copy, raw);
+            }
+        }
+    }
+}
@@ -16,57 +16,154 @@
 
 package io.reactiverse.vertx.maven.plugin.components.impl.merge;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.component.annotations.Component;
 import org.jboss.shrinkwrap.api.asset.Asset;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.util.*;
+import java.util.List;
 
+/**
+ * Concatenates the descriptors, dropping the duplicated lines.
+ * <p>
+ * The lines are streamed from the assets to the output file: only a 64-bit hash of each distinct line is kept in
+ * memory, so large descriptors can be merged with bounded memory.
+ */
+@Component(
+    role = MergingStrategy.class,
+    hint = AppendStrategy.HINT
+)
 public class AppendStrategy implements MergingStrategy {
 
+    public static final String HINT = "append";
+
+    private static final String COMBINE = "${COMBINE}";
+
     @Override
     public MergeResult merge(MavenProject project, Asset local, List<Asset> deps) {
         // Regular merge, concat things.
+        return file -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(file),
+                StandardCharsets.UTF_8))) {
+                Lines lines = new Lines(writer);
+                if (local == null) {
+                    lines.appendAll(deps);
+                    return;
+                }
+                try (BufferedReader reader = reader(local)) {
+                    // An empty local descriptor drops this SPI
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.trim().equalsIgnoreCase(COMBINE)) {
+                            // Copy the ones from the dependencies on this line
+                            lines.appendAll(deps);
+                        } else {
+                            // Just copy the line
+                            lines.append(line);
+                        }
+                    }
+                }
+            }
+        };
+    }
 
-        // Start with deps
-        Set<String> fromDeps = new LinkedHashSet<>();
-        if (deps != null) {
-            deps.stream().map(this::readLines).forEach(fromDeps::addAll);
+    private static BufferedReader reader(Asset asset) {
+        return new BufferedReader(new InputStreamReader(asset.openStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the lines that have not been written yet.
+     */
+    private static class Lines {
+
+        private final Writer writer;
+        private final SeenLines seen = new SeenLines();
+
+        Lines(Writer writer) {
+            this.writer = writer;
         }
-        if (local != null) {
-            List<String> lines = readLines(local);
-            if (lines.isEmpty()) {
-                // Drop this SPI
-                return new TextResult(Collections.emptyList());
+
+        void append(String line) throws IOException {
+            if (seen.add(line)) {
+                writer.write(line);
+                writer.write(System.lineSeparator());
             }
-            return computeOutput(lines, fromDeps);
-        } else {
-            return new TextResult(new ArrayList<>(fromDeps));
         }
-    }
 
-    private List<String> readLines(Asset asset) {
-        try (InputStream is = asset.openStream()) {
-            return IOUtils.readLines(is, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        void appendAll(List<Asset> assets) throws IOException {
+            if (assets == null) {
+                return;
+            }
+            for (Asset asset : assets) {
+                try (BufferedReader reader = reader(asset)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        append(line);
+                    }
+                }
+            }
         }
     }
 
-    private MergeResult computeOutput(List<String> local, Set<String> fromDeps) {
-        Set<String> lines = new LinkedHashSet<>();
-        for (String line : local) {
-            if (line.trim().equalsIgnoreCase("${COMBINE}")) {
-                //Copy the ones form the dependencies on this line
-                lines.addAll(fromDeps);
-            } else {
-                // Just copy the line
-                lines.add(line);
+    /**
+     * An open-addressing set of 64-bit line hashes.
+     */
+    static class SeenLines {
+
+        private long[] table = new long[64];
+        private int size;
+
+        /**
+         * @return {@code true} if the line had not been seen yet
+         */
+        boolean add(String line) {
+            long hash = hash(line);
+            int mask = table.length - 1;
+            int i = (int) hash & mask;
+            while (table[i] != 0) {
+                if (table[i] == hash) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = hash;
+            if (++size * 2 > table.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long hash : old) {
+                if (hash != 0) {
+                    int i = (int) hash & mask;
+                    while (table[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = hash;
+                }
+            }
+        }
+
+        static long hash(String line) {
+            // FNV-1a, followed by the MurmurHash3 finalizer to spread the bits used as table index
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < line.length(); i++) {
+                h ^= line.charAt(i);
+                h *= 0x100000001b3L;
             }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            // 0 marks the free slots
+            return h == 0 ? 1 : h;
         }
-        return new TextResult(new ArrayList<>(lines));
     }
 }
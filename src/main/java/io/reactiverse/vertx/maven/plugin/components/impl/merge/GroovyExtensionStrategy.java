@@ -17,17 +17,65 @@
 package io.reactiverse.vertx.maven.plugin.components.impl.merge;
 
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.component.annotations.Component;
 import org.jboss.shrinkwrap.api.asset.Asset;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
+@Component(
+    role = MergingStrategy.class,
+    hint = GroovyExtensionStrategy.HINT
+)
 public class GroovyExtensionStrategy implements MergingStrategy {
 
+    public static final String HINT = "groovy-extension";
+
+    private static final String NAME = "org.codehaus.groovy.runtime.ExtensionModule";
+
+    @Override
+    public List<String> getPatterns() {
+        return Collections.singletonList(NAME);
+    }
+
+    /**
+     * @param path the path of an archive entry
+     * @return whether the entry is a Groovy extension module descriptor, in {@code META-INF/groovy} or in the legacy
+     * {@code META-INF/services} location
+     */
+    public static boolean isExtensionModule(String path) {
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        return name.equals("META-INF/groovy/" + NAME) || name.equals("META-INF/services/" + NAME);
+    }
+
+    /**
+     * Reads the extension classes declared by a descriptor. Groovy loads them by name, so nothing else references
+     * them.
+     *
+     * @param is the content of the descriptor, closed by this method
+     * @return the names of the extension and static extension classes
+     * @throws IOException if the descriptor cannot be read
+     */
+    public static List<String> extensionClasses(InputStream is) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = is) {
+            properties.load(in);
+        }
+        List<String> classes = new ArrayList<>();
+        for (String key : Arrays.asList("extensionClasses", "staticExtensionClasses")) {
+            String value = properties.getProperty(key, "").trim();
+            if (value.length() > 0) {
+                append(value, classes);
+            }
+        }
+        return classes;
+    }
+
     @Override
     public MergeResult merge(MavenProject project, Asset local, List<Asset> deps) {
         List<String> extensionClassesList = new ArrayList<>();
@@ -18,59 +18,117 @@ package io.reactiverse.vertx.maven.plugin.components.impl.merge;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.core.config.plugins.processor.PluginCache;
+import org.apache.logging.log4j.core.config.plugins.processor.PluginEntry;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.component.annotations.Component;
 import org.jboss.shrinkwrap.api.asset.Asset;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.OutputStream;
+import java.util.*;
 
+/**
+ * Merges the Log4j2 plugin caches ({@code Log4j2Plugins.dat}).
+ * <p>
+ * The binary caches are parsed straight from the assets into a {@link PluginCache}, in the same way as
+ * {@link PluginCache#loadCacheFiles(java.util.Enumeration)} does (categories are lower-cased, the first entry
+ * declared for a key wins), and the merged cache is serialized directly into the output file.
+ */
+@Component(
+    role = MergingStrategy.class,
+    hint = Log4j2PluginsStrategy.HINT
+)
 public class Log4j2PluginsStrategy implements MergingStrategy {
 
+    public static final String HINT = "log4j2-plugins";
+
+    private static final String PATH = "META-INF/org/apache/logging/log4j/core/config/plugins/Log4j2Plugins.dat";
+
+    @Override
+    public List<String> getPatterns() {
+        return Collections.singletonList("/" + PATH);
+    }
+
     @Override
     public MergeResult merge(MavenProject project, Asset local, List<Asset> deps) {
-        List<File> files = new ArrayList<>(1 + (deps == null ? 0 : deps.size()));
-        try {
-            if (local != null) {
-                files.add(copy(local));
-            }
-            if (deps != null) {
-                for (Asset dep : deps) {
-                    files.add(copy(dep));
-                }
+        PluginCache cache = new PluginCache();
+        if (local != null) {
+            load(cache, local);
+        }
+        if (deps != null) {
+            for (Asset dep : deps) {
+                load(cache, dep);
             }
-
-            List<URL> urls = new ArrayList<>(files.size());
-            for (File resource : files) {
-                urls.add(resource.toURI().toURL());
+        }
+        return file -> {
+            try (OutputStream os = FileUtils.openOutputStream(file)) {
+                cache.writeCache(os);
             }
+        };
+    }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PluginCache cache = new PluginCache();
+    /**
+     * @param path the path of an archive entry
+     * @return whether the entry is a Log4j2 plugin cache
+     */
+    public static boolean isPluginCache(String path) {
+        return (path.startsWith("/") ? path.substring(1) : path).equals(PATH);
+    }
 
-            cache.loadCacheFiles(Collections.enumeration(urls));
-            cache.writeCache(baos);
+    /**
+     * Reads the classes of the plugins declared by a cache. Log4j2 loads them by name, so nothing else references
+     * them.
+     *
+     * @param is the content of the cache, closed by this method
+     * @return the names of the plugin classes
+     * @throws IOException if the cache cannot be read
+     */
+    public static Set<String> pluginClasses(InputStream is) throws IOException {
+        PluginCache cache = new PluginCache();
+        load(cache, is);
+        Set<String> classes = new LinkedHashSet<>();
+        cache.getAllCategories().values().forEach(entries ->
+            entries.values().forEach(entry -> classes.add(entry.getClassName())));
+        return classes;
+    }
 
-            return new BinaryResult(baos.toByteArray());
+    private static void load(PluginCache cache, Asset asset) {
+        try {
+            load(cache, asset.openStream());
         } catch (IOException e) {
             throw new RuntimeException(e);
-        } finally {
-            files.forEach(File::delete);
         }
     }
 
-    private File copy(Asset asset) {
-        try (InputStream is = asset.openStream()) {
-            File tempFile = File.createTempFile(Log4j2PluginsStrategy.class.getSimpleName(), null);
-            FileUtils.copyInputStreamToFile(is, tempFile);
-            return tempFile;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private static void load(PluginCache cache, InputStream is) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String category = in.readUTF();
+                Map<String, PluginEntry> entries = cache.getCategory(category);
+                int size = in.readInt();
+                for (int j = 0; j < size; j++) {
+                    // All the parts of the entry must be read, even if the entry is ignored
+                    String key = in.readUTF();
+                    String className = in.readUTF();
+                    String name = in.readUTF();
+                    boolean printable = in.readBoolean();
+                    boolean defer = in.readBoolean();
+                    entries.computeIfAbsent(key, k -> {
+                        PluginEntry entry = new PluginEntry();
+                        entry.setKey(k);
+                        entry.setClassName(className);
+                        entry.setName(name);
+                        entry.setPrintable(printable);
+                        entry.setDefer(defer);
+                        entry.setCategory(category);
+                        return entry;
+                    });
+                }
+            }
         }
     }
 }
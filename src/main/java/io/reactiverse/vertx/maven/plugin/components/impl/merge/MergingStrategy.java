@@ -19,23 +19,24 @@ package io.reactiverse.vertx.maven.plugin.components.impl.merge;
 import org.apache.maven.project.MavenProject;
 import org.jboss.shrinkwrap.api.asset.Asset;
 
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Merges the descriptors found in the project and in the dependencies.
+ * <p>
+ * Strategies are Plexus components with the {@code MergingStrategy} role, discovered by the
+ * {@link MergingStrategyRegistry}. A strategy is selected either by a merging rule of the archive, referencing its
+ * hint, or by its default patterns.
+ */
 public interface MergingStrategy {
 
-    static MergingStrategy forName(String name) {
-        MergingStrategy strategy;
-        switch (name) {
-            case "org.codehaus.groovy.runtime.ExtensionModule":
-                strategy = new GroovyExtensionStrategy();
-                break;
-            case "/META-INF/org/apache/logging/log4j/core/config/plugins/Log4j2Plugins.dat":
-                strategy = new Log4j2PluginsStrategy();
-                break;
-            default:
-                strategy = new AppendStrategy();
-        }
-        return strategy;
+    /**
+     * @return the patterns of the descriptors merged by default with this strategy, relative to the archive root,
+     * empty if the strategy is only used by the merging rules of the archive
+     */
+    default List<String> getPatterns() {
+        return Collections.emptyList();
     }
 
     MergeResult merge(MavenProject project, Asset local, List<Asset> deps);
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl.merge;
+
+import io.reactiverse.vertx.maven.plugin.mojos.MergingRule;
+import io.reactiverse.vertx.maven.plugin.utils.PatternSet;
+
+import java.util.*;
+
+/**
+ * Selects the {@link MergingStrategy} of each combined descriptor.
+ * <p>
+ * The merging rules of the archive are checked first, in order. Then the default patterns of the strategies are
+ * checked, in the order of the strategy hints. The descriptors not matched by any pattern are appended.
+ * <p>
+ * The built-in strategies are always registered, so the registry can be used without a Plexus container. Patterns
+ * use the same syntax as the file combination patterns, and are matched against the descriptor path in the archive,
+ * starting with {@code /}.
+ */
+public class MergingStrategyRegistry {
+
+    private final Map<String, MergingStrategy> strategies = new TreeMap<>();
+
+    private final List<Map.Entry<PatternSet, MergingStrategy>> matchers = new ArrayList<>();
+
+    /**
+     * @param strategies the strategy components, keyed by hint, may be {@code null}
+     * @param rules      the merging rules of the archive, may be {@code null}
+     * @throws IllegalArgumentException if a rule references an unknown strategy
+     */
+    public MergingStrategyRegistry(Map<String, MergingStrategy> strategies, List<MergingRule> rules) {
+        if (strategies != null) {
+            this.strategies.putAll(strategies);
+        }
+        this.strategies.putIfAbsent(AppendStrategy.HINT, new AppendStrategy());
+        this.strategies.putIfAbsent(GroovyExtensionStrategy.HINT, new GroovyExtensionStrategy());
+        this.strategies.putIfAbsent(Log4j2PluginsStrategy.HINT, new Log4j2PluginsStrategy());
+
+        if (rules != null) {
+            for (MergingRule rule : rules) {
+                MergingStrategy strategy = this.strategies.get(rule.getStrategy());
+                if (strategy == null || rule.getPattern() == null) {
+                    throw new IllegalArgumentException("Invalid merging rule for pattern `" + rule.getPattern()
+                        + "` and strategy `" + rule.getStrategy() + "`, available strategies: "
+                        + this.strategies.keySet());
+                }
+                matchers.add(matcher(Collections.singletonList(rule.getPattern()), strategy));
+            }
+        }
+        for (MergingStrategy strategy : this.strategies.values()) {
+            List<String> patterns = strategy.getPatterns();
+            if (patterns != null && !patterns.isEmpty()) {
+                matchers.add(matcher(patterns, strategy));
+            }
+        }
+    }
+
+    private static Map.Entry<PatternSet, MergingStrategy> matcher(List<String> patterns, MergingStrategy strategy) {
+        // Same as the file combination patterns: relative patterns also match from the archive root
+        List<String> all = new ArrayList<>();
+        for (String pattern : patterns) {
+            all.add(pattern);
+            if (!pattern.startsWith("/")) {
+                all.add("/" + pattern);
+            }
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(PatternSet.of(all), strategy);
+    }
+
+    /**
+     * @param path the path of the descriptor in the archive
+     * @return the strategy merging the descriptor
+     */
+    public MergingStrategy get(String path) {
+        for (Map.Entry<PatternSet, MergingStrategy> matcher : matchers) {
+            if (matcher.getKey().matches(path)) {
+                return matcher.getValue();
+            }
+        }
+        return strategies.get(AppendStrategy.HINT);
+    }
+}
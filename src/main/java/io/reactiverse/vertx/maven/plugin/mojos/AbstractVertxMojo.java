@@ -20,6 +20,7 @@ package io.reactiverse.vertx.maven.plugin.mojos;
 import io.reactiverse.vertx.maven.plugin.utils.MavenUtils;
 import io.reactiverse.vertx.maven.plugin.utils.WebJars;
 import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.SystemUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.lifecycle.LifecycleExecutor;
@@ -51,6 +52,7 @@ import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Properties;
 import java.util.Set;
 
 /**
@@ -58,8 +60,8 @@ import java.util.Set;
  */
 public abstract class AbstractVertxMojo extends AbstractMojo implements Contextualizable {
 
-    private static final String LAUNCHER = "io.vertx.launcher.application.VertxApplication";
-    private static final String LEGACY_LAUNCHER = "io.vertx.core.Launcher";
+    static final String LAUNCHER = "io.vertx.launcher.application.VertxApplication";
+    static final String LEGACY_LAUNCHER = "io.vertx.core.Launcher";
 
     /* ==== Maven deps ==== */
 
@@ -166,6 +168,28 @@ public abstract class AbstractVertxMojo extends AbstractMojo implements Contextu
         container = (PlexusContainer) context.get(PlexusConstants.PLEXUS_KEY);
     }
 
+    /**
+     * Finds the Java executable, from the running JVM or the {@code JAVA_HOME} environment variable.
+     *
+     * @param systemEnvVars the environment variables
+     */
+    protected File findJava(Properties systemEnvVars) throws MojoExecutionException {
+        String javaHome = System.getProperty("java.home");
+        if (javaHome == null) {
+            javaHome = systemEnvVars.getProperty("JAVA_HOME");
+        }
+        if (javaHome != null) {
+            File binDir = new File(javaHome, "bin");
+            if (binDir.exists() && binDir.isDirectory()) {
+                File java = new File(binDir, SystemUtils.IS_OS_WINDOWS ? "java.exe" : "java");
+                if (java.isFile() && java.canExecute()) {
+                    return java;
+                }
+            }
+        }
+        throw new MojoExecutionException("Unable to find the Java executable.");
+    }
+
     /**
      * List of classpath elements (classes directory and dependencies).
      */
@@ -39,6 +39,8 @@ public class Archive {
 
     private List<String> fileCombinationPatterns = new ArrayList<>();
 
+    private List<MergingRule> mergingRules = new ArrayList<>();
+
     /**
      * Adds a dependency set
      *
@@ -204,4 +206,23 @@ public class Archive {
     public List<String> getFileCombinationPatterns() {
         return fileCombinationPatterns;
     }
+
+    /**
+     * Adds a merging rule. The rules are checked in order, before the default patterns of the merging strategies.
+     *
+     * @param rule the rule, must not be {@code null}
+     */
+    public Archive addMergingRule(MergingRule rule) {
+        this.mergingRules.add(Objects.requireNonNull(rule));
+        return this;
+    }
+
+    public Archive setMergingRules(List<MergingRule> rules) {
+        this.mergingRules = Objects.requireNonNull(rules);
+        return this;
+    }
+
+    public List<MergingRule> getMergingRules() {
+        return mergingRules;
+    }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.mojos;
+
+import io.reactiverse.vertx.maven.plugin.components.ServiceUtils;
+import io.reactiverse.vertx.maven.plugin.utils.VertxAppBuilder;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * This goal creates a dynamic Class Data Sharing (AppCDS) archive for the application packaged by
+ * {@code vertx:package}, so that the JVM starts with pre-parsed classes.
+ * <p>
+ * The packaged application is launched in a forked JVM for a training run, and the classes it loaded are dumped when
+ * it stops. A launcher script using the archive is written next to the application. Requires Java 13 or later.
+ * <p>
+ * On Windows, the training run cannot be stopped gracefully: the application must exit by itself within the training
+ * duration for the archive to be dumped.
+ */
+@Mojo(name = "cds", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
+public class CdsMojo extends AbstractVertxMojo {
+
+    private static final String JSA_EXTENSION = ".jsa";
+
+    /**
+     * The classifier of the packaged application, as configured for {@code vertx:package}.
+     */
+    @Parameter(name = "classifier")
+    protected String classifier;
+
+    /**
+     * How long, in milliseconds, the application runs before being stopped, when it does not stop by itself. On
+     * Windows, the application is stopped forcibly and no archive is dumped, so it must stop by itself.
+     */
+    @Parameter(name = "trainingDuration", property = "vertx.cds.trainingDuration", defaultValue = "10000")
+    protected long trainingDuration;
+
+    /**
+     * JVM arguments of the training run.
+     */
+    @Parameter(name = "trainingJvmArgs", property = "vertx.cds.jvmArguments")
+    protected List<String> trainingJvmArgs;
+
+    /**
+     * Arguments passed to the application during the training run.
+     */
+    @Parameter(name = "trainingArgs", property = "vertx.cds.trainingArgs")
+    protected List<String> trainingArgs;
+
+    /**
+     * The working directory of the training run.
+     */
+    @Parameter(name = "trainingDirectory", property = "vertx.cds.directory", defaultValue = "${project.basedir}")
+    protected File trainingDirectory;
+
+    /**
+     * Whether a launcher script using the archive is written next to the application.
+     */
+    @Parameter(name = "launcherScript", property = "vertx.cds.launcherScript", defaultValue = "true")
+    protected boolean launcherScript;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("vertx:cds skipped by configuration");
+            return;
+        }
+
+        Archive packaged = archive != null ? archive : ServiceUtils.getDefaultFatJar();
+        File jar = new File(projectBuildDir, PackageMojo.computeOutputName(packaged, project, classifier));
+        if (!jar.isFile()) {
+            throw new MojoExecutionException("The application " + jar.getAbsolutePath() + " does not exist, "
+                + "vertx:package must be executed before vertx:cds");
+        }
+
+        File cds = new File(jar.getParentFile(), FilenameUtils.getBaseName(jar.getName()) + JSA_EXTENSION);
+        try {
+            Files.deleteIfExists(cds.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to delete the previous archive " + cds.getAbsolutePath(), e);
+        }
+
+        boolean stopped = train(jar, cds);
+
+        if (!cds.isFile() && stopped && SystemUtils.IS_OS_WINDOWS) {
+            throw new MojoExecutionException("The training run was stopped after " + trainingDuration + " ms and did "
+                + "not create the archive " + cds.getAbsolutePath() + ": processes cannot be stopped gracefully on "
+                + "Windows, the application must exit by itself within the trainingDuration");
+        }
+        if (!cds.isFile()) {
+            throw new MojoExecutionException("The training run did not create the archive " + cds.getAbsolutePath()
+                + ", dynamic CDS archives require Java 13 or later");
+        }
+        getLog().info("Class Data Sharing archive created: " + cds.getAbsolutePath());
+
+        if (launcherScript) {
+            writeLauncherScript(jar, cds);
+        }
+    }
+
+    /**
+     * @return whether the training run was stopped, rather than exiting by itself
+     */
+    private boolean train(File jar, File cds) throws MojoExecutionException {
+        VertxAppBuilder appBuilder = new VertxAppBuilder(findJava(CommandLineUtils.getSystemEnvVars()),
+            mainClass(jar))
+            .addClasspathElement(jar)
+            .addJvmArg("-XX:ArchiveClassesAtExit=" + cds.getAbsolutePath())
+            .workDir(trainingDirectory);
+        if (trainingJvmArgs != null) {
+            for (String jvmArg : trainingJvmArgs) {
+                if (StringUtils.isNotBlank(jvmArg)) {
+                    appBuilder.addJvmArg(jvmArg.trim());
+                }
+            }
+        }
+        if (trainingArgs != null) {
+            for (String arg : trainingArgs) {
+                if (StringUtils.isNotBlank(arg)) {
+                    appBuilder.addAppArg(arg.trim());
+                }
+            }
+        }
+
+        getLog().info("Launching the training run of " + jar.getName());
+        try {
+            Process process = appBuilder.processBuilder().start();
+            if (!process.waitFor(trainingDuration, TimeUnit.MILLISECONDS)) {
+                // Stopped gracefully: the archive is dumped when the JVM exits
+                process.destroy();
+                if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                    process.destroyForcibly();
+                    throw new MojoExecutionException("The training run did not stop");
+                }
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to start the training run", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted during the training run", e);
+        }
+    }
+
+    private static String mainClass(File jar) throws MojoExecutionException {
+        try (JarFile file = new JarFile(jar)) {
+            Manifest manifest = file.getManifest();
+            String mainClass = manifest != null ? manifest.getMainAttributes().getValue("Main-Class") : null;
+            if (StringUtils.isBlank(mainClass)) {
+                throw new MojoExecutionException("No Main-Class in the manifest of " + jar.getAbsolutePath());
+            }
+            return mainClass;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read " + jar.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Writes a shell script launching the application with the archive. The archive must be used with the same Java
+     * version, and the same application path, as the training run.
+     */
+    private void writeLauncherScript(File jar, File cds) throws MojoExecutionException {
+        File script = new File(jar.getParentFile(), FilenameUtils.getBaseName(jar.getName()) + ".sh");
+        String content = "#!/bin/sh\n"
+            + "DIR=$(cd \"$(dirname \"$0\")\" && pwd)\n"
+            + "exec java -XX:SharedArchiveFile=\"$DIR/" + cds.getName() + "\" $JAVA_OPTS -jar \"$DIR/" + jar.getName()
+            + "\" \"$@\"\n";
+        try {
+            FileUtils.writeStringToFile(script, content, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the launcher script " + script.getAbsolutePath(), e);
+        }
+        if (!script.setExecutable(true)) {
+            getLog().warn("Unable to make the launcher script executable: " + script.getAbsolutePath());
+        }
+        getLog().info("Launcher script created: " + script.getAbsolutePath());
+    }
+}
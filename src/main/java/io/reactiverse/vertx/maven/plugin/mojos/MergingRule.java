@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.mojos;
+
+/**
+ * Selects the strategy merging the combined files matching a pattern.
+ */
+public class MergingRule {
+
+    /**
+     * The pattern of the combined files, relative to the archive root.
+     */
+    private String pattern;
+
+    /**
+     * The hint of the merging strategy component.
+     */
+    private String strategy;
+
+    /**
+     * Get the pattern of the combined files, relative to the archive root.
+     *
+     * @return the pattern
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Set the pattern of the combined files, relative to the archive root.
+     *
+     * @param pattern the pattern
+     * @return the current {@link MergingRule}
+     */
+    public MergingRule setPattern(String pattern) {
+        this.pattern = pattern;
+        return this;
+    }
+
+    /**
+     * Get the hint of the merging strategy component.
+     *
+     * @return the strategy
+     */
+    public String getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Set the hint of the merging strategy component.
+     *
+     * @param strategy the strategy
+     * @return the current {@link MergingRule}
+     */
+    public MergingRule setStrategy(String strategy) {
+        this.strategy = strategy;
+        return this;
+    }
+}
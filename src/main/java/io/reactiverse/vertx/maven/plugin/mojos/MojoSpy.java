@@ -32,7 +32,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class MojoSpy extends AbstractExecutionListener {
 
-    private static final List<String> PHASES = Arrays.asList(
+    static final List<String> PHASES = Arrays.asList(
         "generate-sources",
         "process-sources",
         "generate-resources",
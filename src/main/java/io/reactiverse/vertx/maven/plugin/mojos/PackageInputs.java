@@ -0,0 +1,279 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.mojos;
+
+import org.apache.maven.artifact.Artifact;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * The inputs of a packaging, digested to detect that the archive of the previous build is still up-to-date.
+ * <p>
+ * The configuration is captured when the inputs are created, as the packaging updates some of it. The files are read
+ * when the digest is computed: the project files are digested by content, so that a recompilation producing the same
+ * classes does not change the digest. The dependencies are digested by location, size and modification time: released
+ * artifacts never change, and reading them would cost as much as the packaging.
+ * <p>
+ * The digest of the inputs is stored next to the archive, in {@code <archive>.inputs}, with the size and modification
+ * time of the archive and of the files listed in its {@code Class-Path} manifest entry, such as the dependencies copied
+ * by the {@code layered} packager.
+ */
+class PackageInputs {
+
+    static final String SUFFIX = ".inputs";
+
+    private static final String SEPARATOR = "\t";
+
+    private final List<String> configuration = new ArrayList<>();
+
+    private final List<File> dependencies = new ArrayList<>();
+
+    private final List<Scan> scans = new ArrayList<>();
+
+    private final List<File> files = new ArrayList<>();
+
+    /**
+     * A directory whose selected files are digested by content.
+     */
+    private static class Scan {
+        private final File directory;
+        private final String[] includes;
+        private final String[] excludes;
+
+        private Scan(File directory, List<String> includes, List<String> excludes) {
+            this.directory = directory;
+            this.includes = includes.isEmpty() ? null : includes.toArray(new String[0]);
+            this.excludes = excludes.isEmpty() ? null : excludes.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Adds a configuration value, such as a mojo parameter.
+     */
+    PackageInputs configuration(String key, Object value) {
+        configuration.add(key + "=" + value);
+        return this;
+    }
+
+    /**
+     * Adds the archive configuration and manifest.
+     *
+     * @param archive  the archive, with its computed manifest
+     * @param basedir  the project directory, against which the file sets and items are resolved
+     * @param classes  the project output directory
+     * @param excluded the manifest entries changing on each build, not part of the inputs
+     */
+    PackageInputs archive(Archive archive, File basedir, File classes, Collection<String> excluded) {
+        configuration("outputFileName", archive.getOutputFileName());
+        configuration("includeClasses", archive.isIncludeClasses());
+        new TreeMap<>(archive.getManifest()).forEach((key, value) -> {
+            if (!excluded.contains(key)) {
+                configuration("manifest." + key, value);
+            }
+        });
+        configuration("fileCombinationPatterns", archive.getFileCombinationPatterns());
+        for (MergingRule rule : archive.getMergingRules()) {
+            configuration("mergingRule", rule.getPattern() + " -> " + rule.getStrategy());
+        }
+        for (DependencySet set : archive.getDependencySets()) {
+            configuration("dependencySet", set.getScope() + " " + set.isUseTransitiveDependencies()
+                + " includes" + set.getIncludes() + " excludes" + set.getExcludes()
+                + " options" + set.getOptions().getIncludes() + set.getOptions().getExcludes()
+                + set.getOptions().isUseDefaultExcludes());
+        }
+        for (FileSet set : archive.getFileSets()) {
+            configuration("fileSet", set.getDirectory() + " -> " + set.getOutputDirectory() + " includes"
+                + set.getIncludes() + " excludes" + set.getExcludes() + " " + set.isUseDefaultExcludes());
+            File directory = new File(set.getDirectory());
+            if (!directory.isAbsolute()) {
+                directory = new File(basedir, set.getDirectory());
+            }
+            List<String> excludes = new ArrayList<>(set.getExcludes());
+            if (set.isUseDefaultExcludes()) {
+                excludes.addAll(FileUtils.getDefaultExcludesAsList());
+            }
+            scans.add(new Scan(directory, set.getIncludes(), excludes));
+        }
+        for (FileItem item : archive.getFiles()) {
+            configuration("fileItem", item.getSource() + " -> " + item.getOutputDirectory() + "/"
+                + item.getDestName());
+            // Items not found in the project are moved from the archive content
+            files.add(new File(basedir, item.getSource()));
+        }
+        if (archive.isIncludeClasses()) {
+            scans.add(new Scan(classes, Collections.emptyList(), Collections.emptyList()));
+        }
+        return this;
+    }
+
+    /**
+     * Adds the dependencies, in order, as the first dependency providing an entry wins.
+     */
+    PackageInputs dependencies(Collection<Artifact> artifacts) {
+        for (Artifact artifact : artifacts) {
+            configuration("dependency", artifact.getId() + ":" + artifact.getScope());
+            if (artifact.getFile() != null) {
+                dependencies.add(artifact.getFile());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Computes the digest of the inputs, reading the current content of the files.
+     *
+     * @return the hexadecimal digest
+     * @throws IOException if a file cannot be read
+     */
+    String digest() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        for (String line : configuration) {
+            update(digest, line);
+        }
+        for (File file : dependencies) {
+            update(digest, "D " + file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified());
+        }
+        byte[] buffer = new byte[8192];
+        for (File file : files) {
+            update(digest, "F " + file.getAbsolutePath());
+            if (file.isFile()) {
+                update(digest, file, buffer);
+            }
+        }
+        for (Scan scan : scans) {
+            update(digest, "S " + scan.directory.getAbsolutePath());
+            if (!scan.directory.isDirectory()) {
+                continue;
+            }
+            DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir(scan.directory);
+            scanner.setIncludes(scan.includes);
+            scanner.setExcludes(scan.excludes);
+            scanner.scan();
+            String[] paths = scanner.getIncludedFiles();
+            Arrays.sort(paths);
+            for (String path : paths) {
+                update(digest, path.replace(File.separatorChar, '/'));
+                update(digest, new File(scan.directory, path), buffer);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static void update(MessageDigest digest, File file, byte[] buffer) throws IOException {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) '\n');
+    }
+
+    /**
+     * @param jar the archive
+     * @return the file storing the digest of the inputs of the archive
+     */
+    static File location(File jar) {
+        return new File(jar.getParentFile(), jar.getName() + SUFFIX);
+    }
+
+    /**
+     * @param jar the archive
+     * @return the digest stored for the archive, {@code null} if the archive or the digest do not exist, or if the
+     * archive or a file of its class path was modified since the digest was stored
+     */
+    static String read(File jar) {
+        File file = location(jar);
+        if (!jar.isFile() || !file.isFile()) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+            int index = content.indexOf(SEPARATOR);
+            if (index < 0 || !content.substring(index + 1).equals(jarStamp(jar))) {
+                return null;
+            }
+            return content.substring(0, index);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the digest of the inputs of the archive, along with the size and modification time of the archive and of
+     * the files of its class path.
+     */
+    static void write(File jar, String digest) throws IOException {
+        Files.write(location(jar).toPath(), (digest + SEPARATOR + jarStamp(jar)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String jarStamp(File jar) throws IOException {
+        StringBuilder stamp = new StringBuilder().append(jar.length()).append(SEPARATOR).append(jar.lastModified());
+        // A missing file is stamped with a size and modification time of 0
+        for (String entry : classPath(jar)) {
+            File file = new File(jar.getParentFile(), entry);
+            stamp.append(SEPARATOR).append(entry).append(SEPARATOR).append(file.length())
+                .append(SEPARATOR).append(file.lastModified());
+        }
+        return stamp.toString();
+    }
+
+    private static List<String> classPath(File jar) throws IOException {
+        try (JarFile file = new JarFile(jar)) {
+            Manifest manifest = file.getManifest();
+            String classPath = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH)
+                : null;
+            if (classPath == null || classPath.trim().isEmpty()) {
+                return Collections.emptyList();
+            }
+            return Arrays.asList(classPath.trim().split("\\s+"));
+        }
+    }
+
+    /**
+     * Deletes the digest of the inputs of the archive, before the archive is replaced.
+     */
+    static void delete(File jar) throws IOException {
+        Files.deleteIfExists(location(jar).toPath());
+    }
+}
@@ -18,7 +18,10 @@
 package io.reactiverse.vertx.maven.plugin.mojos;
 
 import io.reactiverse.vertx.maven.plugin.components.*;
+import io.reactiverse.vertx.maven.plugin.components.impl.ProjectManifestCustomizer;
+import io.reactiverse.vertx.maven.plugin.components.impl.merge.MergingStrategy;
 import io.reactiverse.vertx.maven.plugin.model.CombinationStrategy;
+import io.reactiverse.vertx.maven.plugin.model.ExtraManifestKeys;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
@@ -30,7 +33,11 @@ import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 
 /**
@@ -69,8 +76,109 @@ public class PackageMojo extends AbstractVertxMojo {
     @Parameter(name = "attach", defaultValue = "true")
     protected boolean attach;
 
-    @Component
-    protected PackageService packageService;
+    /**
+     * The packager used to build the archive. `fat-jar` assembles the archive in memory before writing it,
+     * `fat-jar-streaming` copies the entries straight from the dependencies and project files to the archive,
+     * keeping the memory consumption low regardless of the archive size. `layered` produces a thin jar referencing
+     * the dependencies copied to a `lib` directory next to it, grouped in release and snapshot layers.
+     */
+    @Parameter(name = "packager", property = "vertx.packager", defaultValue = "fat-jar")
+    protected String packager;
+
+    /**
+     * The number of threads used by the `fat-jar-streaming` packager to scan the dependencies and compress the
+     * project files. `0` uses one thread per available processor.
+     */
+    @Parameter(name = "packageThreads", property = "vertx.package.threads", defaultValue = "0")
+    protected int packageThreads;
+
+    /**
+     * Whether the `fat-jar-streaming` packager reuses the archive produced by the previous build. An index is written
+     * next to the archive, and the entries whose source did not change are copied from the previous archive.
+     */
+    @Parameter(name = "incremental", property = "vertx.package.incremental", defaultValue = "false")
+    protected boolean incremental;
+
+    /**
+     * Whether the `fat-jar` packager adds a `META-INF/jandex.idx` index to the archive. The index contains the project
+     * classes and merges the indexes shipped by the embedded dependencies.
+     */
+    @Parameter(name = "jandexIndex", property = "vertx.package.jandex", defaultValue = "false")
+    protected boolean jandexIndex;
+
+    /**
+     * Whether the service providers declared in `META-INF/services` are checked against the archive content. The
+     * providers whose class is not in the archive are removed and reported in `<archive>.services-report`, and an index
+     * of the providers is added to the archive (`META-INF/vertx/service-providers.idx`).
+     */
+    @Parameter(name = "validateServices", property = "vertx.package.validateServices", defaultValue = "false")
+    protected boolean validateServices;
+
+    /**
+     * Whether the `fat-jar` packager removes the classes that cannot be reached from the project classes, the main
+     * class, the main verticle, the service providers and the `pruneKeeps` patterns.
+     */
+    @Parameter(name = "prune", property = "vertx.package.prune", defaultValue = "false")
+    protected boolean prune;
+
+    /**
+     * The patterns of the classes kept when pruning, such as the classes only loaded by reflection. Patterns use the
+     * class name syntax: `*` matches a part of a class or package name, `**` matches any number of packages
+     * (`io.vertx.core.**`).
+     */
+    @Parameter(name = "pruneKeeps")
+    protected List<String> pruneKeeps;
+
+    /**
+     * The maximum number of SPI descriptors merged concurrently. `0` uses one thread per available processor.
+     */
+    @Parameter(name = "combinationThreads", property = "vertx.combination.threads", defaultValue = "0")
+    protected int combinationThreads;
+
+    /**
+     * Whether the SPI descriptors extracted from the dependencies are cached, so that the next builds do not read the
+     * descriptors of the unchanged dependencies again. The dependencies are still opened to package their content.
+     */
+    @Parameter(name = "spiCache", property = "vertx.spi.cache", defaultValue = "false")
+    protected boolean spiCache;
+
+    /**
+     * The directory of the SPI descriptor cache. It can be shared by several projects, e.g. by pointing to a
+     * directory of the local repository.
+     */
+    @Parameter(name = "spiCacheDirectory", property = "vertx.spi.cache.directory",
+        defaultValue = "${project.build.directory}/vertx-spi-cache")
+    protected File spiCacheDirectory;
+
+    /**
+     * The maximum size of the SPI descriptor cache, in megabytes. The least recently used entries are evicted when
+     * the cache grows beyond this size.
+     */
+    @Parameter(name = "spiCacheMaxSize", property = "vertx.spi.cache.maxSize", defaultValue = "64")
+    protected int spiCacheMaxSize;
+
+    /**
+     * The timestamp of the archive entries, making the archive reproducible: the entries are sorted, and their
+     * timestamp and permissions are normalized, so that identical inputs produce identical archives. Either a number
+     * of seconds since the epoch or an ISO-8601 date time (`2024-01-01T00:00:00Z`). Unset, or a single character,
+     * disables it.
+     */
+    @Parameter(name = "outputTimestamp", defaultValue = "${project.build.outputTimestamp}")
+    protected String outputTimestamp;
+
+    /**
+     * Whether the packaging is skipped when its inputs did not change since the previous build: the dependencies,
+     * the project classes, the file sets and items, the manifest entries and the archive configuration. A digest of
+     * the inputs is stored next to the archive, in `<archive>.inputs`.
+     */
+    @Parameter(name = "skipUnchanged", property = "vertx.package.skipUnchanged", defaultValue = "false")
+    protected boolean skipUnchanged;
+
+    /**
+     * The version of this plugin, part of the inputs of the packaging as it may change the archive.
+     */
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    protected String pluginVersion;
 
     @Component
     protected ServiceFileCombiner combiner;
@@ -122,39 +230,118 @@ public class PackageMojo extends AbstractVertxMojo {
                 "artifact");
         }
 
-        Archive updatedArchive = computeArchive();
-        // Manage SPI combination
-        combiner.doCombine(new ServiceFileCombinationConfig()
-            .setStrategy(serviceProviderCombination)
-            .setProject(project)
-            .setArchive(updatedArchive)
-            .setMojo(this)
-            .setArtifacts(project.getArtifacts()));
+        Long timestamp;
+        try {
+            timestamp = ServiceUtils.parseOutputTimestamp(outputTimestamp);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        Archive updatedArchive = computeArchive(timestamp);
+        if (timestamp != null) {
+            // Stable manifest, whatever the order in which the entries were added
+            updatedArchive.setManifest(new TreeMap<>(updatedArchive.getManifest()));
+        }
+
+        File buildDir = new File(projectBuildDir);
+        File output = new File(buildDir, computeOutputName(archive, project, classifier));
+        PackageInputs inputs = null;
+        if (skipUnchanged) {
+            inputs = computeInputs(updatedArchive, timestamp);
+            if (isUpToDate(inputs, output)) {
+                getLog().info("The inputs of " + output.getName() + " did not change, skipping the packaging");
+                attachIfNeeded(output);
+                return;
+            }
+        }
 
         File jar;
-        try {
+        // The dependencies are read once, for both the SPI combination and the packaging
+        try (DependencyIndex dependencies = new DependencyIndex()) {
+            // Manage SPI combination
+            combiner.doCombine(new ServiceFileCombinationConfig()
+                .setStrategy(serviceProviderCombination)
+                .setProject(project)
+                .setArchive(updatedArchive)
+                .setMojo(this)
+                .setArtifacts(project.getArtifacts())
+                .setThreads(combinationThreads)
+                .setCacheDirectory(spiCache ? spiCacheDirectory : null)
+                .setCacheMaxSize(spiCacheMaxSize * 1024L * 1024L)
+                .setMergingStrategies(getMergingStrategies())
+                .setDependencyIndex(dependencies));
 
-            File buildDir = new File(projectBuildDir);
             if (!buildDir.isDirectory() && !buildDir.mkdirs()) {
                 getLog().error("An error has occurred while "
                         + "creating the directory defined by projectBuildDir: " + projectBuildDir);
             }
-            jar = packageService.doPackage(
+            jar = getPackageService().doPackage(
                 new PackageConfig()
                     .setArtifacts(project.getArtifacts())
                     .setMojo(this)
-                    .setOutput(new File(buildDir, computeOutputName(archive, project, classifier)))
+                    .setOutput(output)
                     .setProject(project)
-                    .setArchive(this.archive));
+                    .setArchive(this.archive)
+                    .setThreads(packageThreads)
+                    .setIncremental(incremental)
+                    .setJandexIndex(jandexIndex)
+                    .setValidateServices(validateServices)
+                    .setPrune(prune)
+                    .setPruneKeeps(pruneKeeps)
+                    .setOutputTimestamp(timestamp)
+                    .setDependencyIndex(dependencies));
         } catch (PackagingException e) {
             throw new MojoExecutionException("Unable to build the fat jar", e);
         }
 
+        if (inputs != null) {
+            // Computed again, as the SPI combination writes the combined descriptors to the project classes
+            try {
+                PackageInputs.write(jar, inputs.digest());
+            } catch (IOException e) {
+                getLog().warn("Unable to store the digest of the inputs of " + jar.getName() + ": " + e.getMessage());
+            }
+        }
+
         attachIfNeeded(jar);
 
     }
 
-    private Archive computeArchive() throws MojoExecutionException {
+    private PackageInputs computeInputs(Archive updatedArchive, Long timestamp) {
+        PackageInputs inputs = new PackageInputs()
+            .configuration("plugin", pluginVersion)
+            .configuration("packager", packager)
+            .configuration("classifier", classifier)
+            .configuration("serviceProviderCombination", serviceProviderCombination)
+            .configuration("jandexIndex", jandexIndex)
+            .configuration("validateServices", validateServices)
+            .configuration("prune", prune)
+            .configuration("pruneKeeps", pruneKeeps)
+            .configuration("outputTimestamp", timestamp);
+        inputs.archive(updatedArchive, project.getBasedir(), new File(project.getBuild().getOutputDirectory()),
+            Collections.singleton(ExtraManifestKeys.BUILD_TIMESTAMP.header()));
+        inputs.dependencies(project.getArtifacts());
+        return inputs;
+    }
+
+    private boolean isUpToDate(PackageInputs inputs, File output) throws MojoExecutionException {
+        try {
+            String previous = PackageInputs.read(output);
+            if (previous != null && previous.equals(inputs.digest())) {
+                return true;
+            }
+            // Deleted before the packaging, so that a failed packaging is never considered up-to-date
+            PackageInputs.delete(output);
+            return false;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to compute the digest of the inputs of " + output.getName(), e);
+        }
+    }
+
+    /**
+     * @param timestamp the output timestamp of a reproducible build, {@code null} if not configured
+     */
+    private Archive computeArchive(Long timestamp) throws MojoExecutionException {
         if (archive == null) {
             archive = ServiceUtils.getDefaultFatJar();
         }
@@ -173,6 +360,10 @@ public class PackageMojo extends AbstractVertxMojo {
         List<ManifestCustomizerService> customizers = getManifestCustomizers();
         customizers.forEach(customizer ->
             this.archive.getManifest().putAll(customizer.getEntries(this, project)));
+        if (timestamp != null) {
+            this.archive.getManifest().put(ExtraManifestKeys.BUILD_TIMESTAMP.header(),
+                ProjectManifestCustomizer.reproducibleTimestampFormat(timestamp));
+        }
 
         if (archive.getFileCombinationPatterns().isEmpty()) {
             archive.addFileCombinationPattern("META-INF/services/*");
@@ -183,6 +374,16 @@ public class PackageMojo extends AbstractVertxMojo {
         return this.archive;
     }
 
+    private PackageService getPackageService() throws MojoExecutionException {
+        try {
+            return container.lookup(PackageService.class, packager);
+        } catch (ComponentLookupException e) {
+            getLog().debug("PackageService lookup failed", e);
+            throw new MojoExecutionException("Unable to retrieve the " +
+                                             PackageService.class.getName() + " component for packager " + packager);
+        }
+    }
+
     private List<ManifestCustomizerService> getManifestCustomizers() throws MojoExecutionException {
         List<ManifestCustomizerService> customizers;
         try {
@@ -195,6 +396,16 @@ public class PackageMojo extends AbstractVertxMojo {
         return customizers;
     }
 
+    private Map<String, MergingStrategy> getMergingStrategies() throws MojoExecutionException {
+        try {
+            return container.lookupMap(MergingStrategy.class);
+        } catch (ComponentLookupException e) {
+            getLog().debug("MergingStrategy lookup failed", e);
+            throw new MojoExecutionException("Unable to retrieve the " +
+                                             MergingStrategy.class.getName() + " components");
+        }
+    }
+
     private void attachIfNeeded(File jar) {
         if (jar.isFile() && classifier != null && attach) {
             ArtifactHandler handler = new DefaultArtifactHandler("jar");
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.mojos;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Selects the lifecycle phases replayed by {@code vertx:run} after a set of changes.
+ * <p>
+ * A change in a compile source root replays the source processing, the compilation and the class processing. A change
+ * in a resource directory only replays the resource processing. Any other change, such as the input of a source or
+ * resource generator, replays all the phases recorded by the {@link MojoSpy}.
+ */
+class ReplayPlan {
+
+    /**
+     * The kind of a changed path.
+     */
+    enum Kind {
+        SOURCE(Arrays.asList("process-sources", "compile", "process-classes")),
+        RESOURCE(Collections.singletonList("process-resources")),
+        OTHER(MojoSpy.PHASES);
+
+        private final List<String> phases;
+
+        Kind(List<String> phases) {
+            this.phases = phases;
+        }
+    }
+
+    private final List<Path> sourceRoots = new ArrayList<>();
+
+    private final List<Path> resourceRoots = new ArrayList<>();
+
+    /**
+     * @param sourceRoots   the compile source roots
+     * @param resourceRoots the resource directories
+     */
+    ReplayPlan(Collection<File> sourceRoots, Collection<File> resourceRoots) {
+        sourceRoots.forEach(root -> this.sourceRoots.add(root.toPath().toAbsolutePath().normalize()));
+        resourceRoots.forEach(root -> this.resourceRoots.add(root.toPath().toAbsolutePath().normalize()));
+    }
+
+    /**
+     * @param project the project
+     * @return the plan of the compile source roots and resource directories of the project
+     */
+    static ReplayPlan of(MavenProject project) {
+        List<File> sources = new ArrayList<>();
+        for (String root : project.getCompileSourceRoots()) {
+            sources.add(resolve(project, root));
+        }
+        List<File> resources = new ArrayList<>();
+        for (Resource resource : project.getResources()) {
+            if (resource.getDirectory() != null) {
+                resources.add(resolve(project, resource.getDirectory()));
+            }
+        }
+        return new ReplayPlan(sources, resources);
+    }
+
+    private static File resolve(MavenProject project, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(project.getBasedir(), path);
+    }
+
+    /**
+     * @param change a changed file or directory
+     * @return the kinds of the change, several when a resource directory overlaps a source root
+     */
+    Set<Kind> classify(File change) {
+        Path path = change.toPath().toAbsolutePath().normalize();
+        Set<Kind> kinds = EnumSet.noneOf(Kind.class);
+        // A change of a root itself, such as its deletion, may concern any of its content
+        for (Path root : sourceRoots) {
+            if (path.startsWith(root) && !path.equals(root)) {
+                kinds.add(Kind.SOURCE);
+                break;
+            }
+        }
+        for (Path root : resourceRoots) {
+            if (path.startsWith(root) && !path.equals(root)) {
+                kinds.add(Kind.RESOURCE);
+                break;
+            }
+        }
+        if (kinds.isEmpty()) {
+            kinds.add(Kind.OTHER);
+        }
+        return kinds;
+    }
+
+    /**
+     * @param changes the changed files and directories
+     * @return the phases to replay, in the order of {@link MojoSpy#PHASES}
+     */
+    Set<String> phases(Collection<File> changes) {
+        Set<String> phases = new HashSet<>();
+        if (changes.isEmpty()) {
+            phases.addAll(Kind.OTHER.phases);
+        }
+        for (File change : changes) {
+            for (Kind kind : classify(change)) {
+                phases.addAll(kind.phases);
+            }
+        }
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String phase : MojoSpy.PHASES) {
+            if (phases.contains(phase)) {
+                ordered.add(phase);
+            }
+        }
+        return ordered;
+    }
+}
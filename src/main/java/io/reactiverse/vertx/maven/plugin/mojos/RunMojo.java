@@ -18,19 +18,26 @@ package io.reactiverse.vertx.maven.plugin.mojos;
 
 import io.reactiverse.vertx.maven.plugin.utils.*;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.SystemUtils;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.execution.ExecutionListener;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.PluginParameterExpressionEvaluator;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluationException;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluator;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
@@ -49,6 +56,11 @@ public class RunMojo extends AbstractVertxMojo {
 
     private static final String WEB_ENVIRONMENT_VARIABLE_NAME = "VERTXWEB_ENVIRONMENT";
 
+    /**
+     * How long, in milliseconds, the application is awaited when its classes are reloaded.
+     */
+    private static final int HOT_RELOAD_TIMEOUT = 30_000;
+
     /**
      * Whether redeployment is enabled.
      */
@@ -78,17 +90,54 @@ public class RunMojo extends AbstractVertxMojo {
     List<String> redeployExcludes;
 
     /**
-     * How often, in milliseconds, should the source files be scanned for file changes.
+     * How often, in milliseconds, should the source files be scanned for file changes. When the file system notifies
+     * the changes, they are detected immediately, and this is how often the application state is checked.
      */
     @Parameter(property = "vertx.redeploy.scan.period", defaultValue = "1000")
     long redeployScanPeriod;
 
     /**
      * How long, in milliseconds, the plugin should wait between two redeployments.
+     *
+     * @deprecated ignored, the changes are coalesced until the sources stay unchanged for the
+     * {@link #redeployQuietPeriod}
      */
+    @Deprecated
     @Parameter(property = "vertx.redeploy.grace.period", defaultValue = "1000")
     long redeployGracePeriod;
 
+    /**
+     * How long, in milliseconds, the source files must stay unchanged before the application is redeployed. The
+     * changes made in the meantime, such as those of a "save all" or a checkout, are redeployed at once.
+     */
+    @Parameter(property = "vertx.redeploy.quiet.period", defaultValue = "300")
+    long redeployQuietPeriod;
+
+    /**
+     * Whether the application classes are reloaded in the running JVM on redeployment, instead of restarting the JVM.
+     * The dependency classes stay loaded, only the main verticle is deployed again.
+     * <p>
+     * It requires the main class to be the Vert.x launcher, and the run arguments to be limited to {@code -options},
+     * {@code -conf}, {@code -instances} and {@code -worker}. Otherwise, or when the application does not reply, the JVM
+     * is restarted.
+     */
+    @Parameter(property = "vertx.redeploy.hot", defaultValue = "false")
+    boolean hotReload;
+
+    /**
+     * Whether the Java sources are compiled in the Maven JVM on redeployment, recompiling only the changed sources and
+     * the sources depending on them, instead of executing the {@code maven-compiler-plugin}.
+     * <p>
+     * The first redeployment compiles all the sources. The {@code maven-compiler-plugin} is still executed when
+     * annotation processors may run, when the sources declare a module, when the legacy {@code compilerArgument} or
+     * {@code compilerArguments} parameters are configured, when the compiled sources are selected with
+     * {@code includes} or {@code excludes} or skipped with {@code skipMain}, when another compiler than the javac of
+     * the Maven JVM is configured ({@code compilerId}, {@code fork}, {@code executable} or {@code compilerVersion}), or
+     * when the Maven JVM provides no Java compiler.
+     */
+    @Parameter(property = "vertx.redeploy.incremental", defaultValue = "false")
+    boolean incrementalCompilation;
+
     /**
      * Sets the environment the Vert.x Web app is running in.
      * <p>
@@ -157,6 +206,8 @@ public class RunMojo extends AbstractVertxMojo {
 
     private final CountDownLatch stopLatch = new CountDownLatch(1);
     private Process vertxApp;
+    private HotReloadControl hotReloadControl;
+    private IncrementalCompiler incrementalCompiler;
     private volatile boolean stop;
 
     @Override
@@ -170,7 +221,7 @@ public class RunMojo extends AbstractVertxMojo {
 
         systemEnvVars = CommandLineUtils.getSystemEnvVars();
 
-        java = findJava();
+        java = findJava(systemEnvVars);
         getLog().info("Found java executable: " + java);
 
         if (StringUtils.isBlank(vertxWebEnvironment)) {
@@ -188,6 +239,14 @@ public class RunMojo extends AbstractVertxMojo {
             throw new MojoExecutionException("Failure while running Vert.x application", e);
         } finally {
             destroyApp();
+            if (hotReloadControl != null) {
+                try {
+                    hotReloadControl.close();
+                } catch (IOException e) {
+                    getLog().debug("Unable to close the hot reload control", e);
+                }
+            }
+            closeIncrementalCompiler();
             stopLatch.countDown();
         }
     }
@@ -199,33 +258,63 @@ public class RunMojo extends AbstractVertxMojo {
         }
     }
 
-    private File findJava() throws MojoExecutionException {
-        String javaHome = System.getProperty("java.home");
-        if (javaHome == null) {
-            Properties envVars = systemEnvVars;
-            javaHome = envVars.getProperty("JAVA_HOME");
-        }
-        if (javaHome != null) {
-            File binDir = new File(javaHome, "bin");
-            if (binDir.exists() && binDir.isDirectory()) {
-                File java = new File(binDir, SystemUtils.IS_OS_WINDOWS ? "java.exe" : "java");
-                if (java.isFile() && java.canExecute()) {
-                    return java;
+    private void buildLoop(FileChangesHelper fileChangesHelper) throws MojoExecutionException {
+        Boolean hot = null;
+        while (!stop) {
+
+            List<String> appArgs = new ArrayList<>();
+            if (getVertxApplicationInfo().isVertxLauncher()) {
+                appArgs.add(getVertxApplicationInfo().mainVerticle());
+                File optionsFile = scanAndLoad("options", options);
+                if (optionsFile != null) {
+                    appArgs.add("-options");
+                    appArgs.add(StringUtils.quoteAndEscape(optionsFile.getAbsolutePath(), '"'));
+                }
+                File configFile = scanAndLoad("application", config);
+                if (configFile != null) {
+                    appArgs.add("-conf");
+                    appArgs.add(StringUtils.quoteAndEscape(configFile.getAbsolutePath(), '"'));
                 }
             }
-        }
-        throw new MojoExecutionException("Unable to find the Java executable.");
-    }
 
-    private void buildLoop(FileChangesHelper fileChangesHelper) throws MojoExecutionException {
-        while (!stop) {
+            if (runArgs != null) {
+                for (String runArg : runArgs) {
+                    if (StringUtils.isNotBlank(runArg)) {
+                        try {
+                            appArgs.addAll(Arrays.asList(CommandLineUtils.translateCommandline(runArg.trim())));
+                        } catch (Exception e) {
+                            throw new MojoExecutionException("Failed to parse Vert.x run argument:" + runArg, e);
+                        }
+                    }
+                }
+            }
 
-            VertxAppBuilder appBuilder = new VertxAppBuilder(java, getVertxApplicationInfo().mainClass())
+            if (hot == null) {
+                hot = redeploy && hotReload && supportsHotReload(appArgs);
+            }
+
+            VertxAppBuilder appBuilder = new VertxAppBuilder(java, hot ? HotReloadShim.class.getName() : getVertxApplicationInfo().mainClass())
                 .env(WEB_ENVIRONMENT_VARIABLE_NAME, vertxWebEnvironment)
                 .workDir(workDirectory);
 
-            for (File classPathElement : getClassPathElements()) {
-                appBuilder.addClasspathElement(classPathElement);
+            if (hot) {
+                // The project classes are loaded by the shim, so that they can be reloaded
+                appBuilder.addClasspathElement(extractHotReloadShim());
+                for (File classPathElement : getClassPathElements()) {
+                    if (!classPathElement.equals(classesDirectory)) {
+                        appBuilder.addClasspathElement(classPathElement);
+                    }
+                }
+                hotReloadControl.disconnect();
+                appBuilder
+                    .addJvmArg(String.format("-D%s=%d", HotReloadShim.PORT_PROPERTY, hotReloadControl.port()))
+                    .addJvmArg(String.format("-D%s=%s", HotReloadShim.TOKEN_PROPERTY, hotReloadControl.token()))
+                    .addJvmArg(String.format("-D%s=%s", HotReloadShim.CLASSES_PROPERTY, classesDirectory.getAbsolutePath()))
+                    .addJvmArg("-Dvertx.disableFileCaching=true");
+            } else {
+                for (File classPathElement : getClassPathElements()) {
+                    appBuilder.addClasspathElement(classPathElement);
+                }
             }
 
             if (debug || disableBlockedThreadChecker) {
@@ -247,37 +336,11 @@ public class RunMojo extends AbstractVertxMojo {
                 }
             }
 
-            if (getVertxApplicationInfo().isVertxLauncher()) {
-                if (getVertxApplicationInfo().isLegacyVertxLauncher()) {
-                    appBuilder.addAppArg("run");
-                }
-                appBuilder.addAppArg(getVertxApplicationInfo().mainVerticle());
-                File optionsFile = scanAndLoad("options", options);
-                if (optionsFile != null) {
-                    appBuilder
-                        .addAppArg("-options")
-                        .addAppArg(StringUtils.quoteAndEscape(optionsFile.getAbsolutePath(), '"'));
-                }
-                File configFile = scanAndLoad("application", config);
-                if (configFile != null) {
-                    appBuilder
-                        .addAppArg("-conf")
-                        .addAppArg(StringUtils.quoteAndEscape(configFile.getAbsolutePath(), '"'));
-                }
+            if (!hot && getVertxApplicationInfo().isLegacyVertxLauncher()) {
+                appBuilder.addAppArg("run");
             }
-
-            if (runArgs != null) {
-                for (String runArg : runArgs) {
-                    if (StringUtils.isNotBlank(runArg)) {
-                        try {
-                            for (String arg : CommandLineUtils.translateCommandline(runArg.trim())) {
-                                appBuilder.addAppArg(arg);
-                            }
-                        } catch (Exception e) {
-                            throw new MojoExecutionException("Failed to parse Vert.x run argument:" + runArg, e);
-                        }
-                    }
-                }
+            for (String appArg : appArgs) {
+                appBuilder.addAppArg(appArg);
             }
 
             getLog().info("Launching Vert.x Application");
@@ -289,15 +352,8 @@ public class RunMojo extends AbstractVertxMojo {
                 throw new MojoExecutionException("Failed to start Vert.x Application", e);
             }
 
-            if (redeploy) {
-                try {
-                    Thread.sleep(redeployGracePeriod);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new MojoExecutionException("Interrupted while sleeping for grace period", e);
-                }
-            }
-
+            Set<File> changes = Collections.emptySet();
+            boolean rebuilt = false;
             while (true) {
                 if (!vertxApp.isAlive()) {
                     getLog().info("Vert.x Application has stopped");
@@ -307,14 +363,21 @@ public class RunMojo extends AbstractVertxMojo {
                     return;
                 }
                 if (redeploy) {
-                    if (fileChangesHelper.foundChanges()) {
-                        break;
-                    }
                     try {
-                        Thread.sleep(redeployScanPeriod);
+                        changes = fileChangesHelper.awaitChangeSet(redeployScanPeriod, redeployQuietPeriod);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
-                        throw new MojoExecutionException("Interrupted while sleeping for scan period", e);
+                        throw new MojoExecutionException("Interrupted while waiting for changes", e);
+                    }
+                    if (!changes.isEmpty()) {
+                        if (!hot) {
+                            break;
+                        }
+                        rebuild(changes);
+                        rebuilt = true;
+                        if (!reloadApp()) {
+                            break;
+                        }
                     }
                 }
             }
@@ -323,37 +386,217 @@ public class RunMojo extends AbstractVertxMojo {
                 throw new MojoExecutionException("Failed to destroy Vert.x Application gracefully");
             }
 
-            getLog().info("Redeploying Vert.x Application");
+            if (!rebuilt) {
+                rebuild(changes);
+            }
+        }
+    }
 
-            Set<Artifact> artifacts = project.getArtifacts();
-            for (Callable<Void> buildTask : computeExecutionChain(artifacts)) {
-                try {
-                    buildTask.call();
-                } catch (Exception e) {
-                    throw new MojoExecutionException("Failed to build Vert.x Application", e);
-                }
+    private boolean supportsHotReload(List<String> appArgs) throws MojoExecutionException {
+        String mainClass = getVertxApplicationInfo().mainClass();
+        if (!LAUNCHER.equals(mainClass) && !LEGACY_LAUNCHER.equals(mainClass)) {
+            getLog().warn("Hot reload requires the main class to be the Vert.x launcher, the application will be restarted on redeployment");
+            return false;
+        }
+        try {
+            new HotReloadShim(appArgs, Collections.singletonList(classesDirectory));
+        } catch (IllegalArgumentException e) {
+            getLog().warn("Hot reload is not supported with the run arguments, the application will be restarted on redeployment: " + e.getMessage());
+            return false;
+        }
+        try {
+            hotReloadControl = new HotReloadControl();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to open the hot reload control port", e);
+        }
+        return true;
+    }
+
+    private File extractHotReloadShim() throws MojoExecutionException {
+        try {
+            return HotReloadControl.extractShim(new File(projectBuildDir, "vertx-hot-reload"));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to extract the hot reload launcher", e);
+        }
+    }
+
+    /**
+     * Reloads the application classes in the running JVM.
+     *
+     * @return {@code false} if the application did not reply and must be restarted
+     */
+    private boolean reloadApp() {
+        getLog().info("Reloading Vert.x Application classes");
+        try {
+            String failure = hotReloadControl.reload(HOT_RELOAD_TIMEOUT);
+            if (failure != null) {
+                // Restarting the JVM would not help, the next change is awaited
+                getLog().error("Failed to reload Vert.x Application: " + failure);
+            }
+            return true;
+        } catch (IOException e) {
+            getLog().warn("Unable to reload Vert.x Application classes, restarting it: " + e.getMessage());
+            hotReloadControl.disconnect();
+            return false;
+        }
+    }
+
+    /**
+     * Rebuilds the application after the given changes.
+     *
+     * @param changes the changed files and directories, coalesced
+     */
+    private void rebuild(Set<File> changes) throws MojoExecutionException {
+        getLog().info("Redeploying Vert.x Application, " + changes.size() + " change(s) detected");
+        if (getLog().isDebugEnabled()) {
+            changes.forEach(change -> getLog().debug("Changed: " + change));
+        }
+
+        Set<String> phases = ReplayPlan.of(project).phases(changes);
+        getLog().debug("Replaying the phases " + phases);
+
+        Set<Artifact> artifacts = project.getArtifacts();
+        for (Callable<Void> buildTask : computeExecutionChain(artifacts, phases)) {
+            try {
+                buildTask.call();
+            } catch (Exception e) {
+                throw new MojoExecutionException("Failed to build Vert.x Application", e);
             }
         }
     }
 
-    private List<Callable<Void>> computeExecutionChain(Set<Artifact> artifacts) {
+    /**
+     * @param phases the phases to replay, the executions bound to other phases are skipped
+     */
+    private List<Callable<Void>> computeExecutionChain(Set<Artifact> artifacts, Set<String> phases) {
         List<Callable<Void>> list = new ArrayList<>();
         ExecutionListener executionListener = mavenSession.getRequest().getExecutionListener();
-        if (executionListener instanceof MojoSpy) {
+        if (executionListener instanceof MojoSpy && !((MojoSpy) executionListener).getMojos().isEmpty()) {
             MojoSpy spy = (MojoSpy) executionListener;
             for (MojoExecution execution : spy.getMojos()) {
-                Callable<Void> task = toTask(execution, artifacts);
-                list.add(task);
+                if (!phases.contains(execution.getLifecyclePhase())) {
+                    continue;
+                }
+                if (incrementalCompilation && isJavaCompilation(execution)) {
+                    list.add(incrementalCompileTask(execution.getConfiguration(),
+                        new PluginParameterExpressionEvaluator(mavenSession, execution), toTask(execution, artifacts)));
+                } else {
+                    list.add(toTask(execution, artifacts));
+                }
+            }
+            return list;
+        }
+        getLog().info("No plugin execution collected. The vertx:initialize goal has not been run beforehand. Only handling resources and java compilation");
+        if (phases.contains("compile")) {
+            if (incrementalCompilation) {
+                // No execution to evaluate the configuration against, only the properties are evaluated
+                list.add(incrementalCompileTask(MojoUtils.compilerConfiguration(project),
+                    new PluginParameterExpressionEvaluator(mavenSession, new MojoExecution(new MojoDescriptor())),
+                    new JavaBuildCallback()));
+            } else {
+                list.add(new JavaBuildCallback());
             }
         }
-        if (list.isEmpty()) {
-            getLog().info("No plugin execution collected. The vertx:initialize goal has not been run beforehand. Only handling resources and java compilation");
-            list.add(new JavaBuildCallback());
+        if (phases.contains("process-resources")) {
             list.add(new ResourceBuildCallback());
         }
         return list;
     }
 
+    private static boolean isJavaCompilation(MojoExecution execution) {
+        return "org.apache.maven.plugins".equals(execution.getGroupId())
+            && "maven-compiler-plugin".equals(execution.getArtifactId())
+            && "compile".equals(execution.getGoal());
+    }
+
+    /**
+     * @param delegate the compilation executed when the sources cannot be compiled incrementally
+     */
+    private Callable<Void> incrementalCompileTask(Xpp3Dom configuration, ExpressionEvaluator evaluator,
+                                                  Callable<Void> delegate) {
+        return () -> {
+            boolean compiled;
+            try {
+                compiled = compileIncrementally(configuration, evaluator);
+            } catch (IOException | ExpressionEvaluationException | DependencyResolutionRequiredException e) {
+                getLog().warn("Unable to compile the sources incrementally, using the maven-compiler-plugin: " + e.getMessage());
+                getLog().debug(e);
+                // The recorded dependencies may be incomplete, they are recorded again by the next compilation
+                closeIncrementalCompiler();
+                compiled = false;
+            }
+            if (!compiled) {
+                delegate.call();
+            }
+            return null;
+        };
+    }
+
+    /**
+     * @return {@code false} if the sources cannot be compiled incrementally
+     */
+    private boolean compileIncrementally(Xpp3Dom configuration, ExpressionEvaluator evaluator)
+        throws IOException, ExpressionEvaluationException, DependencyResolutionRequiredException {
+        List<File> classpath = new ArrayList<>();
+        for (String element : project.getCompileClasspathElements()) {
+            File file = new File(element);
+            if (!file.getAbsoluteFile().equals(classesDirectory.getAbsoluteFile())) {
+                classpath.add(file);
+            }
+        }
+        List<File> sourceRoots = new ArrayList<>();
+        for (String root : project.getCompileSourceRoots()) {
+            File file = new File(root);
+            sourceRoots.add(file.isAbsolute() ? file : new File(project.getBasedir(), root));
+        }
+        if (IncrementalCompiler.isModular(sourceRoots)) {
+            getLog().info("The sources declare a module, using the maven-compiler-plugin");
+            incrementalCompilation = false;
+            closeIncrementalCompiler();
+            return false;
+        }
+        List<String> compilerOptions = IncrementalCompiler.options(configuration, evaluator);
+        if (incrementalCompiler == null) {
+            String unsupported = IncrementalCompiler.unsupportedParameter(configuration, evaluator);
+            if (unsupported != null) {
+                getLog().info("The " + unsupported + " parameter is not supported by the incremental compilation, "
+                    + "using the maven-compiler-plugin");
+                incrementalCompilation = false;
+                return false;
+            }
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler == null) {
+                getLog().info("No Java compiler available in the Maven JVM, using the maven-compiler-plugin");
+                incrementalCompilation = false;
+                return false;
+            }
+            if (IncrementalCompiler.usesAnnotationProcessors(configuration, compilerOptions, classpath)) {
+                getLog().info("Annotation processors may run, using the maven-compiler-plugin");
+                incrementalCompilation = false;
+                return false;
+            }
+            incrementalCompiler = new IncrementalCompiler(getLog(), compiler, classesDirectory);
+        }
+        try {
+            incrementalCompiler.compile(sourceRoots, classpath, compilerOptions);
+        } catch (MojoExecutionException e) {
+            // The errors have been reported, the next change is awaited
+            getLog().error("Error while doing incremental build: " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void closeIncrementalCompiler() {
+        if (incrementalCompiler != null) {
+            try {
+                incrementalCompiler.close();
+            } catch (IOException e) {
+                getLog().debug("Unable to close the incremental compiler", e);
+            }
+            incrementalCompiler = null;
+        }
+    }
+
     private Callable<Void> toTask(MojoExecution execution, Set<Artifact> artifacts) {
         MojoExecutor executor = new MojoExecutor(execution, project, mavenSession, buildPluginManager);
         return () -> {
@@ -19,31 +19,73 @@ package io.reactiverse.vertx.maven.plugin.utils;
 import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.apache.maven.plugin.logging.Log;
-import org.codehaus.plexus.util.SelectorUtils;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import static java.nio.file.StandardWatchEventKinds.*;
 import static org.codehaus.plexus.util.SelectorUtils.ANT_HANDLER_PREFIX;
 import static org.codehaus.plexus.util.SelectorUtils.PATTERN_HANDLER_SUFFIX;
 
 /**
  * Monitors the filesystem for changes.
+ * <p>
+ * Changes are notified by the file system through a {@link WatchService}, registered on each monitored directory.
+ * When the file system cannot notify the changes, or when the notifications overflow, the tree is scanned instead.
+ * As with a scan, only the directories accepted by the include and exclude patterns are monitored.
  */
 public class FileChangesHelper implements AutoCloseable {
 
+    /**
+     * How long the notifications following a change are awaited, so that a change made in several steps, such as a
+     * file written in several chunks, is reported once.
+     */
+    private static final long QUIET_PERIOD = 50;
+
+    /**
+     * The maximum time changes are coalesced, so that continuously changing sources do not delay the redeployment
+     * forever.
+     */
+    private static final long MAX_COALESCING = 10_000;
+
     private final Log log;
+    private final Path root;
+    private final RedeploymentFileFilter filter;
+
+    // Either the watch service, or the observer scanning the tree
+    private final WatchService watcher;
     private final FileAlterationObserver observer;
 
+    // The monitored directories; the path of a key is not updated by the watch service when a directory is moved
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
     private boolean updated;
 
+    // The changed files and directories, in the order of the notifications
+    private final Set<File> changes = new LinkedHashSet<>();
+
     public FileChangesHelper(Log log, File redeployRootDirectory, List<String> redeployIncludes, List<String> redeployExcludes) throws Exception {
         this.log = log;
-        observer = new FileAlterationObserver(redeployRootDirectory, new RedeploymentFileFilter(redeployRootDirectory, redeployIncludes, redeployExcludes));
+        this.root = redeployRootDirectory.toPath();
+        this.filter = new RedeploymentFileFilter(redeployRootDirectory, redeployIncludes, redeployExcludes);
+        this.watcher = newWatchService(log, redeployRootDirectory);
+        if (watcher != null) {
+            observer = null;
+            register(root, false);
+            return;
+        }
+        observer = new FileAlterationObserver(redeployRootDirectory, filter);
         observer.initialize();
         observer.addListener(new FileAlterationListenerAdaptor() {
             @Override
@@ -78,6 +120,67 @@ public class FileChangesHelper implements AutoCloseable {
         });
     }
 
+    /**
+     * @return the watch service, {@code null} if the file system does not notify the changes
+     */
+    private static WatchService newWatchService(Log log, File redeployRootDirectory) {
+        if (!redeployRootDirectory.isDirectory()) {
+            return null;
+        }
+        try {
+            WatchService service = redeployRootDirectory.toPath().getFileSystem().newWatchService();
+            // Without native notifications, the JDK scans each directory periodically: the observer does better
+            if (service.getClass().getName().endsWith("PollingWatchService")) {
+                service.close();
+                return null;
+            }
+            return service;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("File system notifications are not available, scanning " + redeployRootDirectory, e);
+            return null;
+        }
+    }
+
+    /**
+     * Registers the directory and its accepted subdirectories.
+     *
+     * @param created whether the directory has just been created: its content may have been created before its
+     *                registration, so the accepted entries are reported as changes
+     */
+    private void register(Path directory, boolean created) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(root) && !filter.accept(dir.toFile())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    directories.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                    if (created && !dir.equals(directory)) {
+                        onListenerEvent(dir.toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (created && filter.accept(file.toFile())) {
+                        onListenerEvent(file.toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    // Deleted in the meantime, the deletion is notified
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.debug("Unable to monitor " + directory, e);
+        }
+    }
+
     private void onListenerEvent(File event) {
         if (log.isDebugEnabled()) {
             log.debug("Changed file event: " + event);
@@ -85,29 +188,124 @@ public class FileChangesHelper implements AutoCloseable {
         if (!updated) {
             updated = true;
         }
+        changes.add(event);
     }
 
+    /**
+     * @return whether changes were made since the last check
+     */
     public boolean foundChanges() {
+        changes.clear();
+        try {
+            // Notifications are delivered asynchronously: leave them some time to arrive
+            return awaitChanges(watcher != null ? QUIET_PERIOD : 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return updated;
+        }
+    }
+
+    /**
+     * Waits for changes. With file system notifications, returns as soon as changes are notified. Otherwise, the tree
+     * is scanned, and the method waits for the timeout if no change is found.
+     *
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return whether changes were made since the last check
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitChanges(long timeout) throws InterruptedException {
+        updated = false;
+        if (watcher == null) {
+            observer.checkAndNotify();
+            if (!updated && timeout > 0) {
+                Thread.sleep(timeout);
+            }
+            return updated;
+        }
+        WatchKey key = watcher.poll(timeout, TimeUnit.MILLISECONDS);
+        while (key != null) {
+            process(key);
+            key = watcher.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+        }
+        return updated;
+    }
+
+    /**
+     * Waits for changes, then coalesces the changes following them until the sources stay unchanged for the quiet
+     * period, so that a burst of changes, such as a "save all" or a checkout, is reported once and complete.
+     *
+     * @param timeout     the maximum time to wait for a first change, in milliseconds
+     * @param quietPeriod how long the sources must stay unchanged for the changes to be reported, in milliseconds
+     * @return the changed files and directories, empty if nothing changed before the timeout
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public Set<File> awaitChangeSet(long timeout, long quietPeriod) throws InterruptedException {
+        changes.clear();
+        if (awaitChanges(timeout)) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_COALESCING);
+            while (System.nanoTime() < deadline && changedWithin(quietPeriod)) {
+                log.debug("Changes still in progress, waiting for the sources to be quiet");
+            }
+        }
+        Set<File> changeSet = new LinkedHashSet<>(changes);
+        changes.clear();
+        return changeSet;
+    }
+
+    private boolean changedWithin(long period) throws InterruptedException {
+        if (watcher != null) {
+            return awaitChanges(period);
+        }
+        // Changes made during the period are found by the next scan
+        Thread.sleep(period);
         updated = false;
         observer.checkAndNotify();
         return updated;
     }
 
+    private void process(WatchKey key) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Some notifications were lost: register the directories created in the meantime
+                log.debug("File system notifications lost, scanning " + root);
+                register(root, false);
+                onListenerEvent(root.toFile());
+            } else if (directory != null) {
+                Path path = directory.resolve((Path) event.context());
+                if (filter.accept(path.toFile())) {
+                    onListenerEvent(path.toFile());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        register(path, true);
+                    }
+                }
+            }
+        }
+        if (!key.reset()) {
+            // The directory was deleted, or moved away
+            directories.remove(key);
+        }
+    }
+
     @Override
     public void close() throws Exception {
-        observer.destroy();
+        if (watcher != null) {
+            watcher.close();
+        } else {
+            observer.destroy();
+        }
     }
 
     private static class RedeploymentFileFilter implements FileFilter {
 
         final Path rootDirectoryPath;
-        final List<String> includes;
-        final List<String> excludes;
+        final PatternSet includes;
+        final PatternSet excludes;
 
         RedeploymentFileFilter(File redeployRootDirectory, List<String> redeployIncludes, List<String> redeployExcludes) {
             rootDirectoryPath = redeployRootDirectory.toPath();
-            includes = toAntPatterns(redeployIncludes);
-            excludes = toAntPatterns(redeployExcludes);
+            includes = PatternSet.ofPaths(toAntPatterns(redeployIncludes), File.separator);
+            excludes = PatternSet.ofPaths(toAntPatterns(redeployExcludes), File.separator);
         }
 
         private static List<String> toAntPatterns(List<String> patterns) {
@@ -124,22 +322,8 @@ public class FileChangesHelper implements AutoCloseable {
         @Override
         public boolean accept(File pathname) {
             String relativePath = rootDirectoryPath.relativize(pathname.toPath()).toString();
-            boolean accepted = includes.isEmpty();
-            for (String include : includes) {
-                if (SelectorUtils.matchPath(include, relativePath)) {
-                    accepted = true;
-                    break;
-                }
-            }
-            if (accepted) {
-                for (String exclude : excludes) {
-                    if (SelectorUtils.matchPath(exclude, relativePath)) {
-                        accepted = false;
-                        break;
-                    }
-                }
-            }
-            return accepted;
+            boolean accepted = includes.isEmpty() || includes.matches(relativePath);
+            return accepted && !excludes.matches(relativePath);
         }
     }
 }
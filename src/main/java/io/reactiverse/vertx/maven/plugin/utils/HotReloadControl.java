@@ -0,0 +1,180 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.utils;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The plugin side of the channel controlling the {@link HotReloadShim}: a server socket bound to the loopback
+ * interface, to which the shim of the running application connects.
+ * <p>
+ * Any local process can connect to the port, so the shim must first send the random token it received from the
+ * plugin. Connections that do not present it are closed.
+ */
+public class HotReloadControl implements AutoCloseable {
+
+    private final ServerSocket server;
+
+    private final String token;
+
+    private Socket socket;
+    private BufferedReader reader;
+    private PrintWriter writer;
+
+    public HotReloadControl() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        token = hex.toString();
+    }
+
+    /**
+     * @return the port the shim must connect to
+     */
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return the token the shim must send when it connects
+     */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Asks the shim to reload the application classes.
+     *
+     * @param timeout how long, in milliseconds, the shim is awaited
+     * @return {@code null} if the application has been reloaded, the cause of the failure otherwise
+     * @throws IOException if the shim is not connected or does not reply, the application must be restarted
+     */
+    public String reload(int timeout) throws IOException {
+        if (socket == null) {
+            // The shim connects once the application has started
+            accept(timeout);
+        }
+        socket.setSoTimeout(timeout);
+        writer.println(HotReloadShim.RELOAD);
+        if (writer.checkError()) {
+            throw new IOException("Unable to send the reload request");
+        }
+        String reply = reader.readLine();
+        if (reply == null) {
+            throw new EOFException("The application closed the control connection");
+        }
+        if (reply.equals(HotReloadShim.OK)) {
+            return null;
+        }
+        if (reply.startsWith(HotReloadShim.FAILED)) {
+            return reply.substring(HotReloadShim.FAILED.length()).trim();
+        }
+        throw new IOException("Unexpected reply: " + reply);
+    }
+
+    /**
+     * Accepts the connection of the shim, closing the connections that do not present the token.
+     */
+    private void accept(int timeout) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("The application did not connect to the control port");
+            }
+            server.setSoTimeout((int) remaining);
+            Socket candidate = server.accept();
+            try {
+                candidate.setSoTimeout((int) remaining);
+                BufferedReader in = new BufferedReader(
+                    new InputStreamReader(candidate.getInputStream(), StandardCharsets.UTF_8));
+                String presented = in.readLine();
+                if (presented != null && MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8),
+                    token.getBytes(StandardCharsets.UTF_8))) {
+                    socket = candidate;
+                    reader = in;
+                    writer = new PrintWriter(
+                        new OutputStreamWriter(candidate.getOutputStream(), StandardCharsets.UTF_8), true);
+                    return;
+                }
+            } catch (IOException e) {
+                // Not the shim, rejected below
+            }
+            try {
+                candidate.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Closes the connection of the shim, before the application is restarted.
+     */
+    public void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+            socket = null;
+            reader = null;
+            writer = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        disconnect();
+        server.close();
+    }
+
+    /**
+     * Copies the shim class to a directory, to be added to the class path of the application instead of the plugin.
+     *
+     * @param directory the directory
+     * @return the directory
+     * @throws IOException if the class cannot be copied
+     */
+    public static File extractShim(File directory) throws IOException {
+        String path = HotReloadShim.class.getName().replace('.', '/') + ".class";
+        File target = new File(directory, path);
+        Files.createDirectories(target.getParentFile().toPath());
+        try (InputStream is = HotReloadShim.class.getClassLoader().getResourceAsStream(path)) {
+            if (is == null) {
+                throw new FileNotFoundException(path);
+            }
+            Files.copy(is, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return directory;
+    }
+}
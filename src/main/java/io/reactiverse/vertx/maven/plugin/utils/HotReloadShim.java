@@ -0,0 +1,359 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.utils;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The main class of the Vert.x application when {@code vertx:run} reloads the application classes in the running JVM.
+ * <p>
+ * The class path of the JVM holds the dependencies and this class. The project classes are loaded by a child class
+ * loader, replaced on each reload, so the dependency classes stay loaded. The shim connects to the control port opened
+ * by the plugin, sends the token it received from the plugin, and, for each {@code reload} line, undeploys the main verticle and deploys it again from a new class
+ * loader. It replies {@code ok}, or {@code failed} followed by the cause of the failure.
+ * <p>
+ * This class runs in the JVM of the application: it only depends on the JDK and uses Vert.x reflectively. It is copied
+ * to the build directory as a single class file, so it must not have nested classes.
+ */
+public class HotReloadShim {
+
+    /**
+     * The system property holding the control port of the plugin.
+     */
+    public static final String PORT_PROPERTY = "vertx.hot.reload.port";
+
+    /**
+     * The system property holding the directories of the reloaded classes.
+     */
+    public static final String CLASSES_PROPERTY = "vertx.hot.reload.classes";
+
+    /**
+     * The system property holding the token authenticating the shim to the plugin.
+     */
+    public static final String TOKEN_PROPERTY = "vertx.hot.reload.token";
+
+    static final String RELOAD = "reload";
+    static final String OK = "ok";
+    static final String FAILED = "failed";
+
+    private final String verticle;
+    private final String options;
+    private final String config;
+    private final int instances;
+    private final boolean worker;
+    private final URL[] classes;
+
+    private Object vertx;
+    private URLClassLoader loader;
+    private String deploymentId;
+
+    /**
+     * @param args    the launcher arguments: the main verticle followed by the {@code -options}, {@code -conf},
+     *                {@code -instances} and {@code -worker} options
+     * @param classes the directories of the reloaded classes
+     * @throws IllegalArgumentException if an argument is not supported
+     */
+    public HotReloadShim(List<String> args, List<File> classes) {
+        if (args.isEmpty() || args.get(0).startsWith("-")) {
+            throw new IllegalArgumentException("The main verticle must be the first argument");
+        }
+        this.verticle = unquote(args.get(0));
+        String options = null, config = null;
+        int instances = 1;
+        boolean worker = false;
+        for (Iterator<String> iterator = args.subList(1, args.size()).iterator(); iterator.hasNext(); ) {
+            String arg = iterator.next();
+            switch (arg.startsWith("--") ? arg.substring(1) : arg) {
+                case "-options":
+                    options = value(arg, iterator);
+                    break;
+                case "-conf":
+                    config = value(arg, iterator);
+                    break;
+                case "-instances":
+                    try {
+                        instances = Integer.parseInt(value(arg, iterator));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid number of instances", e);
+                    }
+                    break;
+                case "-worker":
+                    worker = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported argument `" + arg + "`");
+            }
+        }
+        this.options = options;
+        this.config = config;
+        this.instances = instances;
+        this.worker = worker;
+        this.classes = new URL[classes.size()];
+        for (int i = 0; i < classes.size(); i++) {
+            try {
+                this.classes[i] = classes.get(i).toURI().toURL();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid class directory: " + classes.get(i), e);
+            }
+        }
+    }
+
+    private static String value(String arg, Iterator<String> iterator) {
+        if (!iterator.hasNext()) {
+            throw new IllegalArgumentException("Missing value of `" + arg + "`");
+        }
+        return unquote(iterator.next());
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<File> classes = new ArrayList<>();
+        for (String directory : System.getProperty(CLASSES_PROPERTY, "").split(File.pathSeparator)) {
+            if (!directory.isEmpty()) {
+                classes.add(new File(directory));
+            }
+        }
+        HotReloadShim shim = new HotReloadShim(Arrays.asList(args), classes);
+        try {
+            shim.start();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(shim::stop));
+
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) {
+            return;
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader reader = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter writer = new PrintWriter(
+                 new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            writer.println(System.getProperty(TOKEN_PROPERTY, ""));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (RELOAD.equals(line)) {
+                    writer.println(shim.reload());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // The plugin is gone, the application must not outlive it
+        System.exit(0);
+    }
+
+    /**
+     * Creates the Vert.x instance and deploys the main verticle. A deployment failure leaves the application running,
+     * so that it is deployed on the next reload.
+     *
+     * @throws Exception if the Vert.x instance cannot be created
+     */
+    void start() throws Exception {
+        Class<?> json = vertxClass("io.vertx.core.json.JsonObject");
+        Class<?> optionsClass = vertxClass("io.vertx.core.VertxOptions");
+        Object vertxOptions = options == null ? optionsClass.getConstructor().newInstance()
+            : optionsClass.getConstructor(json).newInstance(json(options));
+        // As the launchers, apply the vertx.options.* system properties
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("vertx.options.") && name.length() > "vertx.options.".length()) {
+                String property = name.substring("vertx.options.".length());
+                set(vertxOptions, "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1),
+                    System.getProperty(name));
+            }
+        }
+        vertx = vertxClass("io.vertx.core.Vertx").getMethod("vertx", optionsClass).invoke(null, vertxOptions);
+        String failure = deploy();
+        if (failure != null) {
+            System.err.println("Failed to deploy " + verticle + ": " + failure);
+        }
+    }
+
+    /**
+     * Undeploys the main verticle and deploys it from a new class loader.
+     *
+     * @return the reply to the plugin
+     */
+    synchronized String reload() {
+        try {
+            if (deploymentId != null) {
+                await(vertxClass("io.vertx.core.Vertx").getMethod("undeploy", String.class)
+                    .invoke(vertx, deploymentId));
+                deploymentId = null;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return FAILED + " " + e;
+        }
+        String failure = deploy();
+        return failure == null ? OK : FAILED + " " + failure;
+    }
+
+    /**
+     * @return {@code null} if deployed, the cause of the failure otherwise
+     */
+    private synchronized String deploy() {
+        closeLoader();
+        loader = new URLClassLoader(classes, HotReloadShim.class.getClassLoader());
+        Thread thread = Thread.currentThread();
+        ClassLoader tccl = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            Class<?> deploymentOptionsClass = vertxClass("io.vertx.core.DeploymentOptions");
+            Object deploymentOptions = deploymentOptionsClass.getConstructor().newInstance();
+            if (config != null) {
+                invoke(deploymentOptions, "setConfig", json(config));
+            }
+            invoke(deploymentOptions, "setInstances", instances);
+            if (worker && !set(deploymentOptions, "setThreadingModel", "WORKER")) {
+                invoke(deploymentOptions, "setWorker", true);
+            }
+            set(deploymentOptions, "setClassLoader", loader);
+            Object future = vertxClass("io.vertx.core.Vertx").getMethod("deployVerticle", String.class,
+                deploymentOptionsClass).invoke(vertx, verticle, deploymentOptions);
+            deploymentId = (String) await(future);
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return e.toString();
+        } finally {
+            thread.setContextClassLoader(tccl);
+        }
+    }
+
+    /**
+     * Closes the Vert.x instance.
+     */
+    synchronized void stop() {
+        try {
+            if (vertx != null) {
+                await(vertxClass("io.vertx.core.Vertx").getMethod("close").invoke(vertx));
+                vertx = null;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        closeLoader();
+    }
+
+    private void closeLoader() {
+        if (loader != null) {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            loader = null;
+        }
+    }
+
+    /**
+     * @param value a JSON file, or a JSON object as the launchers accept for the configuration
+     */
+    private static Object json(String value) throws Exception {
+        File file = new File(value);
+        String content = file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : value;
+        return vertxClass("io.vertx.core.json.JsonObject").getConstructor(String.class).newInstance(content);
+    }
+
+    private static Class<?> vertxClass(String name) throws ClassNotFoundException {
+        return Class.forName(name, true, HotReloadShim.class.getClassLoader());
+    }
+
+    private static Object await(Object future) throws Exception {
+        Object stage = vertxClass("io.vertx.core.Future").getMethod("toCompletionStage").invoke(future);
+        try {
+            return ((CompletionStage<?>) stage).toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private static void invoke(Object target, String name, Object value) throws Exception {
+        if (!set(target, name, value)) {
+            throw new NoSuchMethodException(target.getClass().getName() + "." + name);
+        }
+    }
+
+    /**
+     * Invokes the setter accepting the value, converting a string value to the type of the parameter.
+     *
+     * @return whether a setter accepting the value was found
+     */
+    private static boolean set(Object target, String name, Object value) throws Exception {
+        for (Method method : target.getClass().getMethods()) {
+            if (!method.getName().equals(name) || method.getParameterCount() != 1) {
+                continue;
+            }
+            Object converted = convert(method.getParameterTypes()[0], value);
+            if (converted != null) {
+                try {
+                    method.invoke(target, converted);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(Class<?> type, Object value) {
+        Class<?> boxed = type == int.class ? Integer.class : type == long.class ? Long.class
+            : type == boolean.class ? Boolean.class : type;
+        if (boxed.isInstance(value)) {
+            return value;
+        }
+        if (!(value instanceof String)) {
+            return null;
+        }
+        String string = (String) value;
+        if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(string);
+        } else if (type == long.class || type == Long.class) {
+            return Long.valueOf(string);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(string);
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, string);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,550 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.utils;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluationException;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluator;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+import javax.tools.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles the Java sources in the Maven JVM, only recompiling the changed sources and the sources depending on them.
+ * <p>
+ * The compiler and its file manager are kept across compilations, so the class path is only opened once. The first
+ * compilation compiles all the sources, and records the classes produced from each source, and the classes they
+ * reference, read from the constant pool of the class files. The following compilations recompile the sources changed
+ * since the previous one, and the sources referencing their classes, transitively. As the compiler inlines constants,
+ * all the sources are recompiled when a source declaring a non-private constant changes.
+ */
+public class IncrementalCompiler implements AutoCloseable {
+
+    private static final String PROCESSOR_SERVICE = "META-INF/services/javax.annotation.processing.Processor";
+
+    /**
+     * The class names in the descriptors and signatures of the constant pool.
+     */
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([^;<>()\\[\\s]+)[;<]");
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private final Log log;
+    private final JavaCompiler compiler;
+    private final StandardJavaFileManager fileManager;
+    private final File output;
+
+    private final Map<File, Source> sources = new HashMap<>();
+
+    /**
+     * The state of a compiled source.
+     */
+    private static class Source {
+        private final long lastModified;
+        private final long length;
+        private final Set<String> classes = new HashSet<>();
+        private final Set<String> references = new HashSet<>();
+        private boolean constants;
+        private boolean failed;
+
+        private Source(File file) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        private boolean isUpToDate(File file) {
+            return !failed && lastModified == file.lastModified() && length == file.length();
+        }
+    }
+
+    /**
+     * @param log      the logger reporting the compilation messages
+     * @param compiler the compiler
+     * @param output   the directory of the compiled classes
+     */
+    public IncrementalCompiler(Log log, JavaCompiler compiler, File output) {
+        this.log = Objects.requireNonNull(log);
+        this.compiler = Objects.requireNonNull(compiler);
+        this.output = Objects.requireNonNull(output);
+        this.fileManager = compiler.getStandardFileManager(null, null, null);
+    }
+
+    /**
+     * Compiles the sources changed since the previous compilation, and the sources depending on them.
+     *
+     * @param sourceRoots the source roots
+     * @param classpath   the compile class path, the output directory is added first
+     * @param options     the compiler options
+     * @return the compiled sources
+     * @throws IOException            if the sources or the class files cannot be read
+     * @throws MojoExecutionException if the compilation failed, the errors are logged
+     */
+    public Set<File> compile(Collection<File> sourceRoots, Collection<File> classpath, List<String> options)
+        throws IOException, MojoExecutionException {
+        Set<File> current = scan(sourceRoots);
+
+        Set<File> removed = new HashSet<>(sources.keySet());
+        removed.removeAll(current);
+        Set<File> changed = new LinkedHashSet<>();
+        for (File file : current) {
+            Source source = sources.get(file);
+            if (source == null || !source.isUpToDate(file)) {
+                changed.add(file);
+            }
+        }
+
+        Set<File> recompile = new LinkedHashSet<>(changed);
+        boolean full = sources.isEmpty();
+        Set<String> changedClasses = new HashSet<>();
+        for (File file : union(changed, removed)) {
+            Source source = sources.get(file);
+            if (source != null) {
+                full |= source.constants;
+                changedClasses.addAll(source.classes);
+            }
+        }
+        if (full) {
+            recompile.addAll(current);
+        } else {
+            addDependents(changedClasses, recompile);
+            recompile.removeAll(removed);
+        }
+
+        for (File file : union(removed, recompile)) {
+            Source source = sources.remove(file);
+            if (source != null) {
+                for (String name : source.classes) {
+                    Files.deleteIfExists(classFile(name).toPath());
+                }
+            }
+        }
+        if (recompile.isEmpty()) {
+            log.debug("Nothing to compile - all classes are up to date");
+            return recompile;
+        }
+
+        log.info("Compiling " + recompile.size() + " source file(s) to " + output.getAbsolutePath());
+        Files.createDirectories(output.toPath());
+        List<File> fullClasspath = new ArrayList<>();
+        fullClasspath.add(output);
+        fullClasspath.addAll(classpath);
+        fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(output));
+        fileManager.setLocation(StandardLocation.CLASS_PATH, fullClasspath);
+        // The unchanged sources are read from the output directory, never compiled implicitly
+        fileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.emptyList());
+
+        Map<File, Set<String>> produced = new HashMap<>();
+        JavaFileManager recording = new ForwardingJavaFileManager<StandardJavaFileManager>(fileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                       FileObject sibling) throws IOException {
+                if (kind == JavaFileObject.Kind.CLASS && sibling != null) {
+                    produced.computeIfAbsent(new File(sibling.toUri()), f -> new HashSet<>()).add(className);
+                }
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+        };
+
+        List<String> arguments = new ArrayList<>(options);
+        arguments.add("-implicit:none");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        boolean success;
+        try {
+            success = compiler.getTask(null, recording, diagnostics, arguments, null,
+                fileManager.getJavaFileObjectsFromFiles(recompile)).call();
+        } catch (RuntimeException e) {
+            throw new MojoExecutionException("Unable to compile the sources", e);
+        } finally {
+            fileManager.flush();
+        }
+        report(diagnostics);
+
+        for (File file : recompile) {
+            Source source = new Source(file);
+            source.failed = !success;
+            for (String name : produced.getOrDefault(file, Collections.emptySet())) {
+                File classFile = classFile(name);
+                if (classFile.isFile()) {
+                    source.classes.add(name);
+                    source.constants |= readReferences(classFile, source.references);
+                }
+            }
+            sources.put(file, source);
+        }
+        if (!success) {
+            throw new MojoExecutionException("Compilation failure");
+        }
+        return recompile;
+    }
+
+    private static Set<File> union(Set<File> a, Set<File> b) {
+        Set<File> union = new LinkedHashSet<>(a);
+        union.addAll(b);
+        return union;
+    }
+
+    /**
+     * Adds the sources referencing the given classes, and the sources referencing their classes, transitively.
+     */
+    private void addDependents(Set<String> classes, Set<File> recompile) {
+        Deque<String> queue = new ArrayDeque<>(classes);
+        Set<String> visited = new HashSet<>(classes);
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            for (Map.Entry<File, Source> entry : sources.entrySet()) {
+                if (!recompile.contains(entry.getKey()) && entry.getValue().references.contains(name)) {
+                    recompile.add(entry.getKey());
+                    for (String dependent : entry.getValue().classes) {
+                        if (visited.add(dependent)) {
+                            queue.add(dependent);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<File> scan(Collection<File> sourceRoots) throws IOException {
+        Set<File> files = new TreeSet<>();
+        for (File root : sourceRoots) {
+            if (!root.isDirectory()) {
+                continue;
+            }
+            try (Stream<Path> stream = Files.walk(root.toPath())) {
+                files.addAll(stream
+                    .filter(path -> path.getFileName().toString().endsWith(".java"))
+                    .filter(Files::isRegularFile)
+                    .map(path -> path.toAbsolutePath().normalize().toFile())
+                    .collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    private File classFile(String name) {
+        return new File(output, name.replace('.', File.separatorChar) + ".class");
+    }
+
+    private void report(DiagnosticCollector<JavaFileObject> diagnostics) {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            StringBuilder message = new StringBuilder();
+            if (diagnostic.getSource() != null) {
+                message.append(new File(diagnostic.getSource().toUri()).getAbsolutePath());
+                if (diagnostic.getLineNumber() != Diagnostic.NOPOS) {
+                    message.append(":[").append(diagnostic.getLineNumber()).append(',')
+                        .append(diagnostic.getColumnNumber()).append(']');
+                }
+                message.append(' ');
+            }
+            message.append(diagnostic.getMessage(Locale.getDefault()));
+            switch (diagnostic.getKind()) {
+                case ERROR:
+                    log.error(message);
+                    break;
+                case WARNING:
+                case MANDATORY_WARNING:
+                    log.warn(message);
+                    break;
+                default:
+                    log.info(message);
+            }
+        }
+    }
+
+    /**
+     * Reads the classes referenced by a class file.
+     *
+     * @param file       the class file
+     * @param references the set receiving the binary names of the referenced classes
+     * @return whether the class declares non-private constants, which the compiler inlines in the referencing classes
+     * @throws IOException if the class file cannot be read
+     */
+    static boolean readReferences(File file, Set<String> references) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != 0xCAFEBABE) {
+                throw new IOException("Invalid class file " + file.getAbsolutePath());
+            }
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            int count = in.readUnsignedShort();
+            String[] utf8 = new String[count];
+            List<Integer> classes = new ArrayList<>();
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1: // Utf8
+                        utf8[i] = in.readUTF();
+                        break;
+                    case 7: // Class
+                        classes.add(in.readUnsignedShort());
+                        break;
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        in.readUnsignedShort();
+                        break;
+                    case 15: // MethodHandle
+                        in.readUnsignedByte();
+                        in.readUnsignedShort();
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.readInt();
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        in.readLong();
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("Invalid constant pool tag " + tag + " in " + file.getAbsolutePath());
+                }
+            }
+
+            for (int index : classes) {
+                String name = utf8[index];
+                if (name != null && !name.startsWith("[")) {
+                    references.add(name.replace('/', '.'));
+                }
+            }
+            for (String value : utf8) {
+                if (value != null && value.indexOf(';') > 0) {
+                    Matcher matcher = DESCRIPTOR_CLASS.matcher(value);
+                    while (matcher.find()) {
+                        references.add(matcher.group(1).replace('/', '.'));
+                    }
+                }
+            }
+
+            // Access flags, this class, super class and interfaces precede the fields
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            int interfaces = in.readUnsignedShort();
+            for (int i = 0; i < interfaces; i++) {
+                in.readUnsignedShort();
+            }
+            boolean constants = false;
+            int fields = in.readUnsignedShort();
+            for (int i = 0; i < fields; i++) {
+                int access = in.readUnsignedShort();
+                in.readUnsignedShort();
+                in.readUnsignedShort();
+                int attributes = in.readUnsignedShort();
+                for (int j = 0; j < attributes; j++) {
+                    String name = utf8[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    if ("ConstantValue".equals(name) && (access & ACC_PRIVATE) == 0) {
+                        constants = true;
+                    }
+                    skip(in, length);
+                }
+            }
+            return constants;
+        }
+    }
+
+    private static void skip(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                in.readByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Computes the compiler options from the configuration of a {@code maven-compiler-plugin} execution.
+     *
+     * @param configuration the configuration of the execution, {@code null} if not configured
+     * @param evaluator     the evaluator of the expressions of the configuration
+     * @return the options
+     * @throws ExpressionEvaluationException if an expression of the configuration cannot be evaluated
+     */
+    public static List<String> options(Xpp3Dom configuration, ExpressionEvaluator evaluator)
+        throws ExpressionEvaluationException {
+        List<String> options = new ArrayList<>();
+        String encoding = parameter(configuration, evaluator, "encoding", "${project.build.sourceEncoding}");
+        if (encoding != null) {
+            options.add("-encoding");
+            options.add(encoding);
+        }
+        String release = parameter(configuration, evaluator, "release", "${maven.compiler.release}");
+        if (release != null) {
+            options.add("--release");
+            options.add(release);
+        } else {
+            String source = parameter(configuration, evaluator, "source", "${maven.compiler.source}");
+            if (source != null) {
+                options.add("-source");
+                options.add(source);
+            }
+            String target = parameter(configuration, evaluator, "target", "${maven.compiler.target}");
+            if (target != null) {
+                options.add("-target");
+                options.add(target);
+            }
+        }
+        if (!"false".equals(parameter(configuration, evaluator, "debug", "${maven.compiler.debug}"))) {
+            options.add("-g");
+        }
+        if ("true".equals(parameter(configuration, evaluator, "parameters", "${maven.compiler.parameters}"))) {
+            options.add("-parameters");
+        }
+        String proc = parameter(configuration, evaluator, "proc", "${maven.compiler.proc}");
+        if (proc != null) {
+            options.add("-proc:" + proc);
+        }
+        Xpp3Dom compilerArgs = configuration == null ? null : configuration.getChild("compilerArgs");
+        if (compilerArgs != null) {
+            for (Xpp3Dom arg : compilerArgs.getChildren()) {
+                Object value = evaluator.evaluate(arg.getValue());
+                if (value != null && StringUtils.isNotBlank(value.toString())) {
+                    options.add(value.toString().trim());
+                }
+            }
+        }
+        return options;
+    }
+
+    private static String parameter(Xpp3Dom configuration, ExpressionEvaluator evaluator, String name,
+                                     String expression) throws ExpressionEvaluationException {
+        Xpp3Dom child = configuration == null ? null : configuration.getChild(name);
+        String value = child == null ? null : child.getValue();
+        if (value == null && child != null) {
+            value = child.getAttribute("default-value");
+        }
+        Object evaluated = evaluator.evaluate(value == null ? expression : value);
+        if (evaluated == null || StringUtils.isBlank(evaluated.toString()) || evaluated.toString().startsWith("${")) {
+            return null;
+        }
+        return evaluated.toString().trim();
+    }
+
+    /**
+     * Whether the sources declare a module. The module path is not configured by the incremental compilation, so the
+     * compilation is left to the {@code maven-compiler-plugin}.
+     *
+     * @param sourceRoots the source roots
+     * @return whether a source root contains a {@code module-info.java} descriptor
+     */
+    public static boolean isModular(Collection<File> sourceRoots) {
+        return sourceRoots.stream().anyMatch(root -> new File(root, "module-info.java").isFile());
+    }
+
+    /**
+     * Finds a parameter of the {@code maven-compiler-plugin} the incremental compilation does not support: the legacy
+     * {@code compilerArgument} and {@code compilerArguments}, the {@code includes} and {@code excludes} selecting the
+     * compiled sources, {@code skipMain}, and the {@code compilerId}, {@code fork}, {@code executable} and
+     * {@code compilerVersion} selecting another compiler than the in-process javac.
+     *
+     * @param configuration the configuration of the execution, {@code null} if not configured
+     * @param evaluator     the evaluator of the expressions of the configuration
+     * @return the name of an unsupported parameter, {@code null} if the configuration is supported
+     * @throws ExpressionEvaluationException if an expression of the configuration cannot be evaluated
+     */
+    public static String unsupportedParameter(Xpp3Dom configuration, ExpressionEvaluator evaluator)
+        throws ExpressionEvaluationException {
+        if (configuration != null) {
+            for (String name : Arrays.asList("compilerArgument", "compilerArguments", "includes", "excludes")) {
+                Xpp3Dom child = configuration.getChild(name);
+                if (child != null && (child.getChildCount() > 0 || StringUtils.isNotBlank(child.getValue()))) {
+                    return name;
+                }
+            }
+        }
+        if ("true".equals(parameter(configuration, evaluator, "skipMain", "${maven.main.skip}"))) {
+            return "skipMain";
+        }
+        String compilerId = parameter(configuration, evaluator, "compilerId", "${maven.compiler.compilerId}");
+        if (compilerId != null && !compilerId.equals("javac")) {
+            return "compilerId";
+        }
+        if ("true".equals(parameter(configuration, evaluator, "fork", "${maven.compiler.fork}"))) {
+            return "fork";
+        }
+        if (parameter(configuration, evaluator, "executable", "${maven.compiler.executable}") != null) {
+            return "executable";
+        }
+        if (parameter(configuration, evaluator, "compilerVersion", "${maven.compiler.compilerVersion}") != null) {
+            return "compilerVersion";
+        }
+        return null;
+    }
+
+    /**
+     * Whether annotation processors may run. The sources they generate depend on sources the incremental compilation
+     * may skip, so the compilation is left to the {@code maven-compiler-plugin}.
+     *
+     * @param configuration the configuration of the {@code maven-compiler-plugin} execution
+     * @param options       the compiler options
+     * @param classpath     the compile class path, where the compiler discovers the processors
+     * @return whether annotation processors may run
+     */
+    public static boolean usesAnnotationProcessors(Xpp3Dom configuration, List<String> options,
+                                                   Collection<File> classpath) {
+        if (options.contains("-proc:none")) {
+            return false;
+        }
+        if (configuration != null && (configuration.getChild("annotationProcessorPaths") != null
+            || configuration.getChild("annotationProcessors") != null)) {
+            return true;
+        }
+        for (File element : classpath) {
+            if (element.isDirectory()) {
+                if (new File(element, PROCESSOR_SERVICE).isFile()) {
+                    return true;
+                }
+            } else if (element.isFile()) {
+                try (JarFile jar = new JarFile(element)) {
+                    if (jar.getEntry(PROCESSOR_SERVICE) != null) {
+                        return true;
+                    }
+                } catch (IOException e) {
+                    // Not an archive, the compiler ignores it too
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+}
@@ -168,6 +168,14 @@ public class MojoUtils {
         }
     }
 
+    /**
+     * @param project the project
+     * @return the configuration of the compilation by the Maven Compiler Plugin, {@code null} if not configured
+     */
+    public static Xpp3Dom compilerConfiguration(MavenProject project) {
+        return buildConfiguration(project, A_MAVEN_COMPILER_PLUGIN, GOAL_COMPILE).orElse(null);
+    }
+
     @SuppressWarnings("unchecked")
     private static List<String> goals(Object goals) {
         if (goals instanceof List) {
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.utils;
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.codehaus.plexus.util.SelectorUtils.*;
+
+/**
+ * A set of patterns compiled once, matching a string if any of the patterns matches it.
+ * <p>
+ * Two flavors are available:
+ * <ul>
+ * <li>{@link #of(Collection)} follows the {@link SelectorUtils#match(String, String)} semantics: {@code *} matches
+ * any sequence of characters, including separators, and {@code ?} matches a single character,</li>
+ * <li>{@link #ofPaths(Collection, String)} follows the {@link SelectorUtils#matchPath(String, String, String, boolean)}
+ * semantics: patterns are Ant path patterns, where {@code *} and {@code ?} do not cross separators and {@code **}
+ * matches any number of directories. The {@code %ant[...]} and {@code %regex[...]} notations are supported.</li>
+ * </ul>
+ * Patterns without wildcard are looked up in a hash set. Matching does not parse the patterns again and, except for
+ * regular expressions, does not allocate.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class PatternSet {
+
+    private static final String ANY_DIRECTORIES = "**";
+
+    private final Set<String> literals = new HashSet<>();
+    private final List<String[]> wildcards = new ArrayList<>();
+    private final List<PathPattern> paths = new ArrayList<>();
+    private final List<Pattern> regexes = new ArrayList<>();
+    private final String separator;
+
+    private PatternSet(String separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * @param patterns the patterns, {@code null} being considered as empty
+     * @return the compiled patterns, matching with the {@link SelectorUtils#match(String, String)} semantics
+     */
+    public static PatternSet of(Collection<String> patterns) {
+        PatternSet set = new PatternSet(null);
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                set.addWildcard(pattern);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * @param patterns  the patterns, {@code null} being considered as empty
+     * @param separator the path separator
+     * @return the compiled patterns, matching with the
+     * {@link SelectorUtils#matchPath(String, String, String, boolean)} semantics (case-sensitive)
+     */
+    public static PatternSet ofPaths(Collection<String> patterns, String separator) {
+        PatternSet set = new PatternSet(separator);
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                set.addPath(pattern);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * @return {@code true} if the set does not contain any pattern
+     */
+    public boolean isEmpty() {
+        return literals.isEmpty() && wildcards.isEmpty() && paths.isEmpty() && regexes.isEmpty();
+    }
+
+    /**
+     * @param value the string to check
+     * @return {@code true} if any pattern of the set matches the given string
+     */
+    public boolean matches(String value) {
+        if (literals.contains(value)) {
+            return true;
+        }
+        for (String[] segments : wildcards) {
+            if (matches(segments, value, 0, value.length())) {
+                return true;
+            }
+        }
+        for (PathPattern pattern : paths) {
+            if (pattern.matches(value)) {
+                return true;
+            }
+        }
+        for (Pattern regex : regexes) {
+            if (regex.matcher(value).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addWildcard(String pattern) {
+        if (isLiteral(pattern)) {
+            literals.add(pattern);
+        } else {
+            wildcards.add(compile(pattern));
+        }
+    }
+
+    private void addPath(String pattern) {
+        if (pattern.length() > REGEX_HANDLER_PREFIX.length() + PATTERN_HANDLER_SUFFIX.length()
+            && pattern.startsWith(REGEX_HANDLER_PREFIX) && pattern.endsWith(PATTERN_HANDLER_SUFFIX)) {
+            regexes.add(Pattern.compile(pattern.substring(REGEX_HANDLER_PREFIX.length(),
+                pattern.length() - PATTERN_HANDLER_SUFFIX.length())));
+            return;
+        }
+        if (pattern.length() > ANT_HANDLER_PREFIX.length() + PATTERN_HANDLER_SUFFIX.length()
+            && pattern.startsWith(ANT_HANDLER_PREFIX) && pattern.endsWith(PATTERN_HANDLER_SUFFIX)) {
+            pattern = pattern.substring(ANT_HANDLER_PREFIX.length(),
+                pattern.length() - PATTERN_HANDLER_SUFFIX.length());
+        }
+        paths.add(new PathPattern(pattern, separator));
+    }
+
+    private static boolean isLiteral(String pattern) {
+        return pattern.indexOf('*') == -1 && pattern.indexOf('?') == -1;
+    }
+
+    /**
+     * @return the segments of the pattern between {@code *} wildcards, consecutive wildcards being collapsed.
+     * The first and last segments are anchored to the start and the end of the value, and may be empty.
+     */
+    private static String[] compile(String pattern) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int index;
+        while ((index = pattern.indexOf('*', start)) != -1) {
+            String segment = pattern.substring(start, index);
+            if (!segment.isEmpty() || segments.isEmpty()) {
+                segments.add(segment);
+            }
+            start = index + 1;
+        }
+        segments.add(pattern.substring(start));
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * Checks whether the region {@code [from, to)} of the value matches the compiled wildcard pattern.
+     */
+    private static boolean matches(String[] segments, String value, int from, int to) {
+        String first = segments[0];
+        if (segments.length == 1) {
+            return first.length() == to - from && regionMatches(value, from, first);
+        }
+        String last = segments[segments.length - 1];
+        int end = to - last.length();
+        if (end < from + first.length() || !regionMatches(value, from, first) || !regionMatches(value, end, last)) {
+            return false;
+        }
+        int position = from + first.length();
+        for (int i = 1; i < segments.length - 1; i++) {
+            position = indexOf(value, segments[i], position, end);
+            if (position == -1) {
+                return false;
+            }
+            position += segments[i].length();
+        }
+        return true;
+    }
+
+    /**
+     * @return the first index, between {@code from} and {@code to}, at which the segment matches
+     */
+    private static int indexOf(String value, String segment, int from, int to) {
+        for (int i = from; i <= to - segment.length(); i++) {
+            if (regionMatches(value, i, segment)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(String value, int offset, String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c != '?' && c != value.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An Ant path pattern, split into its directory tokens. The path is walked token by token, without splitting it.
+     */
+    private static final class PathPattern {
+
+        private final String separator;
+        private final boolean absolute;
+        /**
+         * The compiled tokens, {@code null} for {@code **}.
+         */
+        private final String[][] tokens;
+
+        PathPattern(String pattern, String separator) {
+            this.separator = separator;
+            this.absolute = pattern.startsWith(separator);
+            List<String[]> list = new ArrayList<>();
+            StringTokenizer tokenizer = new StringTokenizer(pattern, separator);
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                if (ANY_DIRECTORIES.equals(token)) {
+                    // Consecutive ** are equivalent to a single one
+                    if (list.isEmpty() || list.get(list.size() - 1) != null) {
+                        list.add(null);
+                    }
+                } else {
+                    list.add(compile(token));
+                }
+            }
+            this.tokens = list.toArray(new String[0][]);
+        }
+
+        boolean matches(String path) {
+            if (path.startsWith(separator) != absolute) {
+                return false;
+            }
+            return matches(0, path, 0);
+        }
+
+        private boolean matches(int index, String path, int position) {
+            position = skipSeparators(path, position);
+            if (index == tokens.length) {
+                return position == path.length();
+            }
+            String[] token = tokens[index];
+            if (token == null) {
+                if (index == tokens.length - 1) {
+                    return true;
+                }
+                // Try to match the rest of the pattern from each directory of the remaining path
+                while (true) {
+                    if (matches(index + 1, path, position)) {
+                        return true;
+                    }
+                    if (position == path.length()) {
+                        return false;
+                    }
+                    position = skipSeparators(path, endOfToken(path, position));
+                }
+            }
+            if (position == path.length()) {
+                return false;
+            }
+            int end = endOfToken(path, position);
+            return PatternSet.matches(token, path, position, end) && matches(index + 1, path, end);
+        }
+
+        private int skipSeparators(String path, int position) {
+            while (path.startsWith(separator, position)) {
+                position += separator.length();
+            }
+            return position;
+        }
+
+        private int endOfToken(String path, int position) {
+            int end = path.indexOf(separator, position);
+            return end == -1 ? path.length() : end;
+        }
+    }
+}
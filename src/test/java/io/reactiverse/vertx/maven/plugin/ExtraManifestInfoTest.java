@@ -123,4 +123,10 @@ public class ExtraManifestInfoTest extends PlexusTestCase {
         assertThat(attributes.getValue(PROJECT_VERSION.header())).isEqualTo("1.0.0-SNAPSHOT");
     }
 
+    public void testReproducibleBuildTimestamp() {
+        // 2024-01-02T03:04:05Z, whatever the time zone of the build machine
+        assertThat(ProjectManifestCustomizer.reproducibleTimestampFormat(1704164645000L))
+            .isEqualTo("20240102 03:04:05 UTC");
+    }
+
 }
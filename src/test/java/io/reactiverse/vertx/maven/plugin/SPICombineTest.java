@@ -17,6 +17,7 @@
 
 package io.reactiverse.vertx.maven.plugin;
 
+import io.reactiverse.vertx.maven.plugin.components.DependencyIndex;
 import io.reactiverse.vertx.maven.plugin.components.ServiceFileCombinationConfig;
 import io.reactiverse.vertx.maven.plugin.components.ServiceUtils;
 import io.reactiverse.vertx.maven.plugin.components.impl.ServiceFileCombinationImpl;
@@ -134,6 +135,109 @@ public class SPICombineTest {
             "com.test.demo.DemoSPI.impl.DemoSPIImpl2");
     }
 
+    @Test
+    public void testCombineWithDependencyIndex() throws Exception {
+        File jar1 = temporaryFolder.newFile("testCombineIndex1.jar");
+        File jar2 = temporaryFolder.newFile("testCombineIndex2.jar");
+
+        JavaArchive jarArchive1 = ShrinkWrap.create(JavaArchive.class);
+        jarArchive1.addAsServiceProvider("com.test.demo.DemoSPI",
+            "com.test.demo.DemoSPI.impl.DemoSPIImpl");
+        jarArchive1.addClass(SPICombineTest.class);
+        jarArchive1.as(ZipExporter.class).exportTo(jar1, true);
+
+        JavaArchive jarArchive2 = ShrinkWrap.create(JavaArchive.class);
+        jarArchive2.addAsServiceProvider("com.test.demo.DemoSPI",
+            "com.test.demo.DemoSPI.impl.DemoSPIImpl2");
+        jarArchive2.as(ZipExporter.class).exportTo(jar2, true);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        Artifact a1 = new DefaultArtifact("org.acme", "a1", "1.0",
+            "compile", "jar", "", null);
+        a1.setFile(jar1);
+        Artifact a2 = new DefaultArtifact("org.acme", "a2", "1.0",
+            "compile", "jar", "", null);
+        a2.setFile(jar2);
+        artifacts.add(a1);
+        artifacts.add(a2);
+
+        MavenProject project = new MavenProject();
+        project.setVersion("1.0");
+        project.setArtifactId("foo");
+        Build build = new Build();
+        build.setOutputDirectory(outputDirectory.getAbsolutePath());
+        project.setBuild(build);
+
+        AbstractVertxMojo mojo = new AbstractVertxMojo() {
+            @Override
+            public void execute() {
+
+            }
+        };
+        mojo.setLog(new SystemStreamLog());
+
+        try (DependencyIndex index = new DependencyIndex()) {
+            combiner.doCombine(new ServiceFileCombinationConfig()
+                .setProject(project)
+                .setArtifacts(artifacts)
+                .setArchive(ServiceUtils.getDefaultFatJar())
+                .setMojo(mojo)
+                .setDependencyIndex(index));
+
+            // The entries are kept for the next stages
+            assertThat(index.getEntries(jar1)).isSameAs(index.getEntries(jar1));
+        }
+
+        File merged = new File(outputDirectory, "META-INF/services/com.test.demo.DemoSPI");
+        assertThat(FileUtils.readLines(merged, "UTF-8")).containsExactly("com.test.demo.DemoSPI.impl.DemoSPIImpl",
+            "com.test.demo.DemoSPI.impl.DemoSPIImpl2");
+    }
+
+    @Test
+    public void testCombineManyDescriptorsConcurrently() throws Exception {
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        for (int i = 0; i < 3; i++) {
+            File jar = temporaryFolder.newFile("testCombineConcurrently" + i + ".jar");
+            JavaArchive jarArchive = ShrinkWrap.create(JavaArchive.class);
+            for (int j = 0; j < 20; j++) {
+                jarArchive.addAsServiceProvider("com.test.demo.DemoSPI" + j, "com.test.demo.impl.Impl" + j + "_" + i);
+            }
+            jarArchive.as(ZipExporter.class).exportTo(jar, true);
+            Artifact artifact = new DefaultArtifact("org.acme", "a" + i, "1.0",
+                "compile", "jar", "", null);
+            artifact.setFile(jar);
+            artifacts.add(artifact);
+        }
+
+        MavenProject project = new MavenProject();
+        project.setVersion("1.0");
+        project.setArtifactId("foo");
+        Build build = new Build();
+        build.setOutputDirectory(outputDirectory.getAbsolutePath());
+        project.setBuild(build);
+
+        AbstractVertxMojo mojo = new AbstractVertxMojo() {
+            @Override
+            public void execute() {
+
+            }
+        };
+        mojo.setLog(new SystemStreamLog());
+
+        combiner.doCombine(new ServiceFileCombinationConfig()
+            .setProject(project)
+            .setArtifacts(artifacts)
+            .setArchive(ServiceUtils.getDefaultFatJar())
+            .setMojo(mojo)
+            .setThreads(4));
+
+        for (int j = 0; j < 20; j++) {
+            File merged = new File(outputDirectory, "META-INF/services/com.test.demo.DemoSPI" + j);
+            assertThat(FileUtils.readLines(merged, "UTF-8")).containsExactly("com.test.demo.impl.Impl" + j + "_0",
+                "com.test.demo.impl.Impl" + j + "_1", "com.test.demo.impl.Impl" + j + "_2");
+        }
+    }
+
     @Test
     public void testCombineDiffSPI() throws Exception {
         File jar1 = temporaryFolder.newFile("testCombineDiffSPI.jar");
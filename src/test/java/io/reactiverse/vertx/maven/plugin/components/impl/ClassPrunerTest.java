@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassPrunerTest {
+
+    private static final String PACKAGE = "io/reactiverse/vertx/maven/plugin/components/impl/";
+
+    private static final List<String> PATHS = Arrays.asList(
+        "/" + PACKAGE + "PruningRoot.class",
+        "/" + PACKAGE + "PruningField.class",
+        "/" + PACKAGE + "PruningSignature.class",
+        "/" + PACKAGE + "PruningReflective.class",
+        "/" + PACKAGE + "PruningUnused.class",
+        "/" + PACKAGE + "PruningKept.class",
+        "/META-INF/versions/11/" + PACKAGE + "PruningUnused.class",
+        "/module-info.class",
+        "/" + PACKAGE + "data.txt");
+
+    @Test
+    public void testUnreachableClasses() throws IOException {
+        Set<String> unreachable = new ClassPruner(null).unreachable(PATHS,
+            Collections.singletonList(PruningRoot.class.getName()), this::open);
+
+        assertThat(unreachable).containsOnly("/" + PACKAGE + "PruningUnused.class", "/" + PACKAGE + "PruningKept.class",
+            "/META-INF/versions/11/" + PACKAGE + "PruningUnused.class");
+    }
+
+    @Test
+    public void testKeepPatterns() throws IOException {
+        Set<String> unreachable = new ClassPruner(Collections.singletonList("io.reactiverse.**.*Kept"))
+            .unreachable(PATHS, Collections.singletonList(PruningRoot.class.getName()), this::open);
+
+        assertThat(unreachable).containsOnly("/" + PACKAGE + "PruningUnused.class",
+            "/META-INF/versions/11/" + PACKAGE + "PruningUnused.class");
+    }
+
+    @Test
+    public void testNoRoot() throws IOException {
+        Set<String> unreachable = new ClassPruner(null).unreachable(PATHS, Collections.emptyList(), this::open);
+        assertThat(unreachable).hasSize(7);
+    }
+
+    private InputStream open(String path) {
+        // The multi-release version is the same class
+        String name = path.replace("/META-INF/versions/11/", "/").substring(1);
+        return getClass().getClassLoader().getResourceAsStream(name);
+    }
+}
+
+class PruningRoot {
+
+    private PruningField field;
+
+    java.util.List<PruningSignature> signatures() {
+        return null;
+    }
+
+    Object reflective() throws ClassNotFoundException {
+        return Class.forName("io.reactiverse.vertx.maven.plugin.components.impl.PruningReflective");
+    }
+}
+
+class PruningField {
+}
+
+class PruningSignature {
+}
+
+class PruningReflective {
+}
+
+class PruningUnused {
+
+    private PruningRoot root;
+}
+
+class PruningKept {
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySet;
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySetOptions;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DependencyEntryFilterTest {
+
+    @Test
+    public void testDefaultExcludes() {
+        DependencyEntryFilter filter = new DependencyEntryFilter(new DependencySet());
+        assertThat(filter.isExcluded("/META-INF/MANIFEST.MF")).isTrue();
+        assertThat(filter.isExcluded("/META-INF/manifest.mf")).isTrue();
+        assertThat(filter.isExcluded("/module-info.class")).isTrue();
+        assertThat(filter.isExcluded("/META-INF/SIGN.SF")).isTrue();
+        assertThat(filter.isExcluded("/META-INF/SIGN.RSA")).isTrue();
+        assertThat(filter.isExcluded("/META-INF/INDEX.LIST")).isTrue();
+        assertThat(filter.isExcluded("/org/acme/.DS_Store")).isTrue();
+        assertThat(filter.isExcluded("/org/acme/Main.class")).isFalse();
+        assertThat(filter.isExcluded("/META-INF/versions/9/module-info.class")).isFalse();
+
+        DependencySetOptions options = new DependencySetOptions();
+        options.setUseDefaultExcludes(false);
+        filter = new DependencyEntryFilter(new DependencySet().setOptions(options));
+        assertThat(filter.isExcluded("/META-INF/SIGN.SF")).isFalse();
+        assertThat(filter.isExcluded("/META-INF/MANIFEST.MF")).isTrue();
+    }
+
+    @Test
+    public void testIncludesAndExcludes() {
+        DependencySetOptions options = new DependencySetOptions();
+        options.setIncludes(Arrays.asList("/org/**", "*.yaml", "/META-INF/services/*"));
+        options.setExcludes(Collections.singletonList("**/Main.class"));
+        DependencyEntryFilter filter = new DependencyEntryFilter(new DependencySet().setOptions(options));
+        assertThat(filter.isExcluded("/org/acme/Main.class")).isTrue();
+        assertThat(filter.isExcluded("/org/acme/Other.class")).isFalse();
+        assertThat(filter.isExcluded("/config.yaml")).isFalse();
+        assertThat(filter.isExcluded("/conf/app.json")).isTrue();
+        assertThat(filter.isExcluded("/META-INF/services/org.acme.Spi")).isFalse();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DescriptorCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File directory;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        directory = new File(temp.getRoot(), "cache");
+    }
+
+    @Test
+    public void testUnchangedDependenciesAreNotLoadedAgain() throws IOException {
+        File dependency = dependency("a.jar", "content");
+        DescriptorCache cache = new DescriptorCache(directory, Long.MAX_VALUE,
+            Collections.singletonList("META-INF/services/*"), new SystemStreamLog());
+
+        Map<String, byte[]> first = cache.get(dependency, this::load);
+        Map<String, byte[]> second = cache.get(dependency, this::load);
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.keySet())
+            .containsExactly("/META-INF/services/org.acme.Spi", "/META-INF/services/org.acme.Other");
+        assertThat(second.get("/META-INF/services/org.acme.Spi"))
+            .isEqualTo(first.get("/META-INF/services/org.acme.Spi"));
+
+        // A change of the dependency, or of the patterns, invalidates the cached entry
+        FileUtils.write(dependency, "updated content", StandardCharsets.UTF_8);
+        cache.get(dependency, this::load);
+        assertThat(loads).hasValue(2);
+
+        new DescriptorCache(directory, Long.MAX_VALUE, Collections.singletonList("META-INF/spring.*"),
+            new SystemStreamLog()).get(dependency, this::load);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        DescriptorCache unbounded = new DescriptorCache(directory, Long.MAX_VALUE,
+            Collections.singletonList("META-INF/services/*"), new SystemStreamLog());
+        File a = dependency("a.jar", "a");
+        File b = dependency("b.jar", "b");
+        File c = dependency("c.jar", "c");
+        unbounded.get(a, this::load);
+        unbounded.get(b, this::load);
+        unbounded.get(c, this::load);
+        File[] files = directory.listFiles();
+        assertThat(files).hasSize(3);
+
+        // Make all the entries old, then use the entry of "a"
+        for (File file : files) {
+            assertThat(file.setLastModified(System.currentTimeMillis() - 60_000)).isTrue();
+        }
+        unbounded.get(a, this::load);
+        assertThat(loads).hasValue(3);
+
+        new DescriptorCache(directory, files[0].length() * 2, Collections.singletonList("META-INF/services/*"),
+            new SystemStreamLog()).evict();
+        assertThat(directory.listFiles()).hasSize(2);
+
+        // "a" is still cached, "b" or "c" has been evicted
+        unbounded.get(a, this::load);
+        assertThat(loads).hasValue(3);
+        unbounded.get(b, this::load);
+        unbounded.get(c, this::load);
+        assertThat(loads).hasValue(4);
+    }
+
+    private File dependency(String name, String content) throws IOException {
+        File file = temp.newFile(name);
+        FileUtils.write(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private Map<String, byte[]> load(File file) throws IOException {
+        loads.incrementAndGet();
+        Map<String, byte[]> descriptors = new LinkedHashMap<>();
+        descriptors.put("/META-INF/services/org.acme.Spi", FileUtils.readFileToByteArray(file));
+        descriptors.put("/META-INF/services/org.acme.Other", "org.acme.Impl".getBytes(StandardCharsets.UTF_8));
+        return descriptors;
+    }
+}
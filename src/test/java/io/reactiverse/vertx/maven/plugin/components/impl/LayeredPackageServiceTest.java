@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import io.reactiverse.vertx.maven.plugin.components.PackageConfig;
+import io.reactiverse.vertx.maven.plugin.components.PackageType;
+import io.reactiverse.vertx.maven.plugin.components.PackagingException;
+import io.reactiverse.vertx.maven.plugin.mojos.AbstractVertxMojo;
+import io.reactiverse.vertx.maven.plugin.mojos.Archive;
+import io.reactiverse.vertx.maven.plugin.mojos.DependencySet;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.jar.JarFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the behavior of the {@link LayeredPackageService}.
+ */
+public class LayeredPackageServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File out;
+    private File repository;
+    private LayeredPackageService service;
+    private AbstractVertxMojo mojo;
+    private MavenProject project;
+
+    @Before
+    public void setUp() throws Exception {
+        out = temporaryFolder.newFolder("target");
+        repository = temporaryFolder.newFolder("repository");
+        File classes = temporaryFolder.newFolder("classes");
+        FileUtils.write(new File(classes, "org/acme/App.class"), "app", StandardCharsets.UTF_8);
+        service = new LayeredPackageService();
+
+        mojo = mock(AbstractVertxMojo.class);
+        project = mock(MavenProject.class);
+        Build build = new Build();
+        build.setOutputDirectory(classes.getAbsolutePath());
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+        when(project.getBasedir()).thenReturn(new File("."));
+        when(project.getBuild()).thenReturn(build);
+        when(mojo.getProject()).thenReturn(project);
+    }
+
+    @Test
+    public void checkPackagingType() {
+        assertThat(service.type()).isEqualTo(PackageType.LAYERED);
+    }
+
+    @Test
+    public void testDependenciesAreCopiedToLayers() throws IOException, PackagingException {
+        Archive archive = new Archive();
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.getManifest().put("Main-Class", "org.acme.App");
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("core", "1.0"));
+        artifacts.add(artifact("util", "2.0-SNAPSHOT"));
+
+        File output = new File(out, "app.jar");
+        service.doPackage(config(archive, output, artifacts));
+
+        File release = new File(out, "lib/release/org.acme.core-1.0.jar");
+        File snapshot = new File(out, "lib/snapshot/org.acme.util-2.0-SNAPSHOT.jar");
+        assertThat(release).isFile();
+        assertThat(snapshot).isFile();
+
+        try (JarFile jar = new JarFile(output)) {
+            assertThat(jar.getEntry("org/acme/App.class")).isNotNull();
+            assertThat(jar.getEntry("core.txt")).isNull();
+            assertThat(jar.getManifest().getMainAttributes().getValue("Main-Class")).isEqualTo("org.acme.App");
+            assertThat(jar.getManifest().getMainAttributes().getValue("Class-Path"))
+                .isEqualTo("lib/release/org.acme.core-1.0.jar lib/snapshot/org.acme.util-2.0-SNAPSHOT.jar");
+        }
+        // The archive manifest is not modified
+        assertThat(archive.getManifest()).doesNotContainKey("Class-Path");
+    }
+
+    @Test
+    public void testUnchangedDependenciesAreNotCopiedAgain() throws IOException, PackagingException {
+        Archive archive = new Archive();
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+
+        DefaultArtifact core = artifact("core", "1.0");
+        DefaultArtifact util = artifact("util", "1.0");
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(core);
+        artifacts.add(util);
+
+        File output = new File(out, "app.jar");
+        service.doPackage(config(archive, output, artifacts));
+
+        File copy = new File(out, "lib/release/org.acme.core-1.0.jar");
+        assertThat(copy.lastModified()).isEqualTo(core.getFile().lastModified());
+
+        Log log = mock(Log.class);
+        when(mojo.getLog()).thenReturn(log);
+        service.doPackage(config(archive, output, Collections.singleton(core)));
+
+        assertThat(copy).isFile();
+        verify(log).debug("org.acme.core-1.0.jar is up to date");
+        verify(log, never()).debug(startsWith("Copying dependency"));
+        assertThat(new File(out, "lib/release/org.acme.util-1.0.jar")).doesNotExist();
+    }
+
+    private PackageConfig config(Archive archive, File output, Set<Artifact> artifacts) {
+        return new PackageConfig()
+            .setProject(project)
+            .setMojo(mojo)
+            .setOutput(output)
+            .setArtifacts(artifacts)
+            .setArchive(archive);
+    }
+
+    private DefaultArtifact artifact(String name, String version) {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+        archive.add(new StringAsset(name), name + ".txt");
+        File jar = new File(repository, name + "-" + version + ".jar");
+        archive.as(ZipExporter.class).exportTo(jar, true);
+
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", name, version, "compile", "jar", "", null);
+        artifact.setFile(jar);
+        return artifact;
+    }
+}
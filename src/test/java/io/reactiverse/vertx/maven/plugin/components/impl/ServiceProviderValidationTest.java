@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceProviderValidationTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testDescriptors() {
+        assertThat(ServiceProviderValidation.isServiceDescriptor("META-INF/services/org.acme.Spi")).isTrue();
+        assertThat(ServiceProviderValidation.isServiceDescriptor("/META-INF/services/org.acme.Spi")).isTrue();
+        assertThat(ServiceProviderValidation.isServiceDescriptor("/META-INF/services/")).isFalse();
+        assertThat(ServiceProviderValidation.isServiceDescriptor("/META-INF/services/a/org.acme.Spi")).isFalse();
+        assertThat(ServiceProviderValidation.isServiceDescriptor("/META-INF/spring.factories")).isFalse();
+    }
+
+    @Test
+    public void testDanglingProvidersAreRemoved() throws IOException {
+        ServiceProviderValidation validation = new ServiceProviderValidation(Arrays.asList(
+            "/org/acme/Impl.class", "/org/acme/Outer$Inner.class", "/META-INF/versions/11/org/acme/Java11.class",
+            "/org/acme/Resource.txt"));
+
+        byte[] validated = validation.validate("/META-INF/services/org.acme.Spi", stream(
+            "# Providers\n",
+            "org.acme.Impl # the main one\n",
+            "org.acme.Missing\n",
+            "\n",
+            "  org.acme.Outer$Inner\n",
+            "org.acme.Java11\n",
+            "org.acme.Resource\n",
+            "org.acme.Impl\n"));
+
+        assertThat(new String(validated, StandardCharsets.UTF_8)).isEqualTo(
+            "# Providers\norg.acme.Impl # the main one\n\n  org.acme.Outer$Inner\norg.acme.Java11\norg.acme.Impl\n");
+        assertThat(validation.getRemoved()).containsOnlyKeys("org.acme.Spi");
+        assertThat(validation.getRemoved().get("org.acme.Spi"))
+            .containsExactly("org.acme.Missing", "org.acme.Resource");
+
+        validation.validate("/META-INF/services/org.acme.Other", stream("org.acme.Impl"));
+        assertThat(new String(validation.index(), StandardCharsets.UTF_8)).isEqualTo(
+            "org.acme.Spi=org.acme.Impl,org.acme.Outer$Inner,org.acme.Java11\norg.acme.Other=org.acme.Impl\n");
+
+        File jar = temp.newFile("app.jar");
+        validation.report(jar, new SystemStreamLog());
+        assertThat(FileUtils.readLines(ServiceProviderValidation.report(jar), StandardCharsets.UTF_8))
+            .containsExactly("org.acme.Spi\torg.acme.Missing", "org.acme.Spi\torg.acme.Resource");
+    }
+
+    private static ByteArrayInputStream stream(String... lines) {
+        return new ByteArrayInputStream(String.join("", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,14 +1,24 @@
 package io.reactiverse.vertx.maven.plugin.components.impl;
 
+import io.reactiverse.vertx.maven.plugin.components.DependencyIndex;
 import io.reactiverse.vertx.maven.plugin.components.PackageConfig;
 import io.reactiverse.vertx.maven.plugin.components.PackageType;
 import io.reactiverse.vertx.maven.plugin.components.PackagingException;
 import io.reactiverse.vertx.maven.plugin.mojos.*;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.core.config.plugins.processor.PluginCache;
+import org.apache.logging.log4j.core.config.plugins.processor.PluginEntry;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.apache.maven.project.MavenProject;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexWriter;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 import org.junit.Before;
@@ -16,9 +26,18 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.jar.JarFile;
@@ -329,4 +348,274 @@ public class ShrinkWrapFatJarPackageServiceTest {
         assertThat(list).contains("META-INF/MANIFEST.MF", "config/some-config.yaml").hasSize(2);
     }
 
+    @Test
+    public void testJandexIndex() throws IOException, PackagingException {
+        AbstractVertxMojo mojo = mock(AbstractVertxMojo.class);
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+
+        // The project contains a class
+        File classes = temporaryFolder.newFolder("classes");
+        File clazz = new File(classes, "io/reactiverse/vertx/maven/plugin/components/PackageType.class");
+        try (InputStream is = PackageType.class.getResourceAsStream("PackageType.class")) {
+            FileUtils.copyInputStreamToFile(is, clazz);
+        }
+        MavenProject project = new MavenProject();
+        project.getBuild().setOutputDirectory(classes.getAbsolutePath());
+
+        // The dependency ships an index
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        new IndexWriter(index).write(Index.of(DependencyIndex.class));
+        JavaArchive dependency = ShrinkWrap.create(JavaArchive.class);
+        dependency.add(new ByteArrayAsset(index.toByteArray()), "META-INF/jandex.idx");
+        dependency.addAsResource(new File("src/test/resources/testconfig.yaml"));
+        File jar1 = new File(out, "indexed.jar");
+        dependency.as(ZipExporter.class).exportTo(jar1, true);
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", "indexed", "1.0", "compile", "jar", "", null);
+        artifact.setFile(jar1);
+
+        Archive archive = new Archive();
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+
+        File output = new File(out, "test-jandex.jar");
+        PackageConfig config = new PackageConfig()
+            .setProject(project)
+            .setMojo(mojo)
+            .setOutput(output)
+            .setArtifacts(Collections.singleton(artifact))
+            .setArchive(archive)
+            .setJandexIndex(true);
+        service.doPackage(config);
+
+        Index merged;
+        try (JarFile jar = new JarFile(output)) {
+            assertThat(jar.getEntry("testconfig.yaml")).isNotNull();
+            merged = new IndexReader(jar.getInputStream(jar.getEntry("META-INF/jandex.idx"))).read();
+        }
+        assertThat(merged.getClassByName(PackageType.class)).isNotNull();
+        assertThat(merged.getClassByName(DependencyIndex.class)).isNotNull();
+        assertThat(merged.getKnownDirectImplementors(AutoCloseable.class))
+            .extracting(c -> c.name().toString()).containsExactly(DependencyIndex.class.getName());
+    }
+
+    @Test
+    public void testServiceValidation() throws IOException, PackagingException {
+        AbstractVertxMojo mojo = mock(AbstractVertxMojo.class);
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+
+        JavaArchive dependency = ShrinkWrap.create(JavaArchive.class);
+        dependency.addClass(DependencyIndex.class);
+        dependency.add(new StringAsset(DependencyIndex.class.getName() + "\norg.acme.Missing\n"),
+            "META-INF/services/java.lang.AutoCloseable");
+        File file = new File(out, "services.jar");
+        dependency.as(ZipExporter.class).exportTo(file, true);
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", "services", "1.0", "compile", "jar", "", null);
+        artifact.setFile(file);
+
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+
+        File output = new File(out, "test-services.jar");
+        PackageConfig config = new PackageConfig()
+            .setMojo(mojo)
+            .setOutput(output)
+            .setArtifacts(Collections.singleton(artifact))
+            .setArchive(archive)
+            .setValidateServices(true);
+        service.doPackage(config);
+
+        try (JarFile jar = new JarFile(output)) {
+            assertThat(IOUtils.toString(jar.getInputStream(jar.getEntry("META-INF/services/java.lang.AutoCloseable")),
+                StandardCharsets.UTF_8)).isEqualTo(DependencyIndex.class.getName() + "\n");
+            assertThat(IOUtils.toString(jar.getInputStream(jar.getEntry("META-INF/vertx/service-providers.idx")),
+                StandardCharsets.UTF_8)).isEqualTo("java.lang.AutoCloseable=" + DependencyIndex.class.getName() + "\n");
+        }
+        assertThat(new File(out, "test-services.jar.services-report"))
+            .hasContent("java.lang.AutoCloseable\torg.acme.Missing");
+    }
+
+    @Test
+    public void testPruning() throws IOException, PackagingException {
+        AbstractVertxMojo mojo = mock(AbstractVertxMojo.class);
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+
+        JavaArchive dependency = ShrinkWrap.create(JavaArchive.class);
+        dependency.addClasses(PruningRoot.class, PruningField.class, PruningSignature.class, PruningReflective.class,
+            PruningUnused.class, PruningKept.class);
+        File file = new File(out, "classes.jar");
+        dependency.as(ZipExporter.class).exportTo(file, true);
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", "classes", "1.0", "compile", "jar", "", null);
+        artifact.setFile(file);
+
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.getManifest().put("Main-Class", PruningRoot.class.getName());
+
+        File output = new File(out, "test-pruning.jar");
+        PackageConfig config = new PackageConfig()
+            .setMojo(mojo)
+            .setOutput(output)
+            .setArtifacts(Collections.singleton(artifact))
+            .setArchive(archive)
+            .setPrune(true)
+            .setPruneKeeps(Collections.singletonList("**.PruningKept"));
+        service.doPackage(config);
+
+        String prefix = PruningRoot.class.getPackage().getName().replace('.', '/') + "/";
+        try (JarFile jar = new JarFile(output)) {
+            assertThat(jar.getEntry(prefix + "PruningRoot.class")).isNotNull();
+            assertThat(jar.getEntry(prefix + "PruningField.class")).isNotNull();
+            assertThat(jar.getEntry(prefix + "PruningReflective.class")).isNotNull();
+            assertThat(jar.getEntry(prefix + "PruningKept.class")).isNotNull();
+            assertThat(jar.getEntry(prefix + "PruningUnused.class")).isNull();
+        }
+    }
+
+    @Test
+    public void testPruningKeepsTheClassesOfTheDescriptors() throws IOException, PackagingException {
+        AbstractVertxMojo mojo = mock(AbstractVertxMojo.class);
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+
+        // The classes are only named by a Log4j2 plugin cache and a Groovy extension module
+        PluginEntry plugin = new PluginEntry();
+        plugin.setKey("unused");
+        plugin.setClassName(PruningUnused.class.getName());
+        plugin.setName("Unused");
+        plugin.setCategory("core");
+        PluginCache cache = new PluginCache();
+        cache.getCategory("core").put(plugin.getKey(), plugin);
+        ByteArrayOutputStream plugins = new ByteArrayOutputStream();
+        cache.writeCache(plugins);
+        JavaArchive dependency = ShrinkWrap.create(JavaArchive.class);
+        dependency.addClasses(PruningRoot.class, PruningField.class, PruningSignature.class, PruningReflective.class,
+            PruningUnused.class, PruningKept.class);
+        dependency.add(new ByteArrayAsset(plugins.toByteArray()),
+            "META-INF/org/apache/logging/log4j/core/config/plugins/Log4j2Plugins.dat");
+        dependency.add(new StringAsset("moduleName=acme\nmoduleVersion=1.0\nextensionClasses="
+            + PruningKept.class.getName() + "\n"), "META-INF/groovy/org.codehaus.groovy.runtime.ExtensionModule");
+        File file = new File(out, "descriptors.jar");
+        dependency.as(ZipExporter.class).exportTo(file, true);
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", "descriptors", "1.0", "compile", "jar", "", null);
+        artifact.setFile(file);
+
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.getManifest().put("Main-Class", PruningRoot.class.getName());
+
+        File output = new File(out, "test-pruning-descriptors.jar");
+        PackageConfig config = new PackageConfig()
+            .setMojo(mojo)
+            .setOutput(output)
+            .setArtifacts(Collections.singleton(artifact))
+            .setArchive(archive)
+            .setPrune(true);
+        service.doPackage(config);
+
+        String prefix = PruningRoot.class.getPackage().getName().replace('.', '/') + "/";
+        try (JarFile jar = new JarFile(output)) {
+            assertThat(jar.getEntry(prefix + "PruningRoot.class")).isNotNull();
+            assertThat(jar.getEntry(prefix + "PruningUnused.class")).isNotNull();
+            assertThat(jar.getEntry(prefix + "PruningKept.class")).isNotNull();
+        }
+    }
+
+    @Test
+    public void testPruningWithJandexIndex() throws IOException, PackagingException {
+        AbstractVertxMojo mojo = mock(AbstractVertxMojo.class);
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+
+        // The dependency ships an index listing a class that is pruned
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        new IndexWriter(index).write(Index.of(PruningRoot.class, PruningField.class, PruningUnused.class));
+        JavaArchive dependency = ShrinkWrap.create(JavaArchive.class);
+        dependency.addClasses(PruningRoot.class, PruningField.class, PruningSignature.class, PruningReflective.class,
+            PruningUnused.class);
+        dependency.add(new ByteArrayAsset(index.toByteArray()), "META-INF/jandex.idx");
+        File file = new File(out, "indexed-classes.jar");
+        dependency.as(ZipExporter.class).exportTo(file, true);
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", "indexed-classes", "1.0", "compile", "jar", "",
+            null);
+        artifact.setFile(file);
+
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.getManifest().put("Main-Class", PruningRoot.class.getName());
+
+        File output = new File(out, "test-pruning-jandex.jar");
+        PackageConfig config = new PackageConfig()
+            .setMojo(mojo)
+            .setOutput(output)
+            .setArtifacts(Collections.singleton(artifact))
+            .setArchive(archive)
+            .setPrune(true)
+            .setJandexIndex(true);
+        service.doPackage(config);
+
+        String prefix = PruningRoot.class.getPackage().getName().replace('.', '/') + "/";
+        Index merged;
+        try (JarFile jar = new JarFile(output)) {
+            assertThat(jar.getEntry(prefix + "PruningUnused.class")).isNull();
+            merged = new IndexReader(jar.getInputStream(jar.getEntry("META-INF/jandex.idx"))).read();
+        }
+        assertThat(merged.getClassByName(PruningRoot.class)).isNotNull();
+        assertThat(merged.getClassByName(PruningField.class)).isNotNull();
+        assertThat(merged.getClassByName(PruningUnused.class)).isNull();
+    }
+
+    @Test
+    public void testReproducibleArchive() throws IOException, PackagingException {
+        AbstractVertxMojo mojo = mock(AbstractVertxMojo.class);
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+
+        DefaultArtifact first = reproducibleArtifact("first", "b/first.txt");
+        DefaultArtifact second = reproducibleArtifact("second", "a/second.txt");
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.getManifest().put("Main-Class", "org.acme.Main");
+
+        long timestamp = Instant.parse("2024-01-01T10:00:00Z").toEpochMilli();
+        File output1 = new File(out, "test-reproducible-1.jar");
+        service.doPackage(new PackageConfig()
+            .setMojo(mojo)
+            .setOutput(output1)
+            .setArtifacts(new LinkedHashSet<>(Arrays.asList(first, second)))
+            .setArchive(archive)
+            .setOutputTimestamp(timestamp));
+
+        // Same content, added in another order, from files modified at another time
+        assertThat(first.getFile().setLastModified(System.currentTimeMillis() - 3_600_000)).isTrue();
+        File output2 = new File(out, "test-reproducible-2.jar");
+        service.doPackage(new PackageConfig()
+            .setMojo(mojo)
+            .setOutput(output2)
+            .setArtifacts(new LinkedHashSet<>(Arrays.asList(second, first)))
+            .setArchive(archive)
+            .setOutputTimestamp(timestamp));
+
+        assertThat(output2).hasSameBinaryContentAs(output1);
+        try (JarFile jar = new JarFile(output1)) {
+            List<ZipEntry> entries = jar.stream().collect(Collectors.toList());
+            assertThat(entries).extracting(ZipEntry::getName).containsExactly("META-INF/", "META-INF/MANIFEST.MF",
+                "a/", "a/second.txt", "b/", "b/first.txt");
+            // The entry time is stored as the UTC date and time, whatever the time zone of the build
+            LocalDateTime expected = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
+            assertThat(entries).allSatisfy(entry -> assertThat(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getTime()), ZoneId.systemDefault()))
+                .isEqualTo(expected));
+        }
+    }
+
+    private DefaultArtifact reproducibleArtifact(String name, String path) {
+        JavaArchive jar = ShrinkWrap.create(JavaArchive.class);
+        jar.add(new StringAsset(name), path);
+        File file = new File(out, name + ".jar");
+        jar.as(ZipExporter.class).exportTo(file, true);
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", name, "1.0", "compile", "jar", "", null);
+        artifact.setFile(file);
+        return artifact;
+    }
 }
@@ -0,0 +1,407 @@
+package io.reactiverse.vertx.maven.plugin.components.impl;
+
+import io.reactiverse.vertx.maven.plugin.components.PackageConfig;
+import io.reactiverse.vertx.maven.plugin.components.PackageType;
+import io.reactiverse.vertx.maven.plugin.components.PackagingException;
+import io.reactiverse.vertx.maven.plugin.mojos.*;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the behavior of the {@link StreamingFatJarPackageService}.
+ */
+public class StreamingFatJarPackageServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File out;
+    private StreamingFatJarPackageService service;
+    private AbstractVertxMojo mojo;
+    private MavenProject project;
+    private File classes;
+
+    @Before
+    public void setUp() throws Exception {
+        out = temporaryFolder.newFolder();
+        classes = temporaryFolder.newFolder("classes");
+        service = new StreamingFatJarPackageService();
+
+        mojo = mock(AbstractVertxMojo.class);
+        project = mock(MavenProject.class);
+        Build build = new Build();
+        build.setOutputDirectory(classes.getAbsolutePath());
+        when(mojo.getLog()).thenReturn(new SystemStreamLog());
+        when(project.getBasedir()).thenReturn(new File("."));
+        when(project.getBuild()).thenReturn(build);
+        when(mojo.getProject()).thenReturn(project);
+    }
+
+    @Test
+    public void checkPackagingType() {
+        assertThat(service.type()).isEqualTo(PackageType.FAT_JAR);
+    }
+
+    @Test
+    public void testEmpty() throws PackagingException, IOException {
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+
+        File output = new File(out, "test-empty.jar");
+        service.doPackage(config(archive, output, Collections.emptySet()));
+
+        assertThat(read(output)).containsOnlyKeys("META-INF/MANIFEST.MF");
+        try (JarInputStream jar = new JarInputStream(FileUtils.openInputStream(output))) {
+            assertThat(jar.getManifest()).isNotNull();
+        }
+    }
+
+    @Test
+    public void testEmbeddingDependenciesFirstWins() throws IOException, PackagingException {
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("jar1", "shared.txt", "from jar1", "META-INF/LICENSE.SF", "signature"));
+        artifacts.add(artifact("jar2", "shared.txt", "from jar2", "jar2.txt", "jar2"));
+
+        File output = new File(out, "test-first-wins.jar");
+        service.doPackage(config(archive, output, artifacts));
+
+        Map<String, String> content = read(output);
+        assertThat(content).containsOnlyKeys("META-INF/MANIFEST.MF", "shared.txt", "jar2.txt");
+        assertThat(content).containsEntry("shared.txt", "from jar1");
+    }
+
+    @Test
+    public void testEmbeddingDependenciesWithAMissingArtifactFile() throws IOException, PackagingException {
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+
+        DefaultArtifact missing = artifact("jar2", "jar2.txt", "jar2");
+        missing.setFile(new File("missing-on-purpose"));
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("jar1", "jar1.txt", "jar1"));
+        artifacts.add(missing);
+
+        File output = new File(out, "test-missing-artifact-file.jar");
+        service.doPackage(config(archive, output, artifacts));
+
+        assertThat(read(output)).containsOnlyKeys("META-INF/MANIFEST.MF", "jar1.txt");
+    }
+
+    @Test
+    public void testRelocatingADependencyEntryUsingFileItem() throws IOException, PackagingException {
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.addFile(new FileItem()
+            .setSource("config/app.yaml")
+            .setOutputDirectory("conf"));
+
+        File output = new File(out, "test-relocation.jar");
+        service.doPackage(config(archive, output, Collections.singleton(artifact("jar1", "config/app.yaml", "app"))));
+
+        assertThat(read(output)).containsOnlyKeys("META-INF/MANIFEST.MF", "conf/app.yaml")
+            .containsEntry("conf/app.yaml", "app");
+    }
+
+    @Test
+    public void testMissingFileItem() {
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.addFile(new FileItem().setSource("does-not-exist.txt"));
+
+        File output = new File(out, "test-missing-file-item.jar");
+        assertThatThrownBy(() -> service.doPackage(config(archive, output, Collections.emptySet())))
+            .isInstanceOf(PackagingException.class)
+            .hasMessageContaining("does-not-exist.txt");
+    }
+
+    @Test
+    public void testMultiRelease() throws IOException, PackagingException {
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+
+        File output = new File(out, "test-multi-release.jar");
+        service.doPackage(config(archive, output,
+            Collections.singleton(artifact("jar1", "META-INF/versions/11/foo.txt", "foo"))));
+
+        try (JarFile jar = new JarFile(output)) {
+            assertThat(jar.getManifest().getMainAttributes().getValue("Multi-Release")).isEqualTo("true");
+        }
+    }
+
+    @Test
+    public void testSameContentAsShrinkWrap() throws IOException, PackagingException {
+        FileUtils.write(new File(classes, "shared.txt"), "from classes", StandardCharsets.UTF_8);
+        FileUtils.write(new File(classes, "org/acme/Main.class"), "not really a class", StandardCharsets.UTF_8);
+        FileUtils.write(new File(classes, "META-INF/services/org.acme.Spi"), "org.acme.Impl", StandardCharsets.UTF_8);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("jar1", "shared.txt", "from jar1", "lib/one.txt", "one", "META-INF/MANIFEST.MF",
+            "Manifest-Version: 1.0\n", "module-info.class", "module"));
+        artifacts.add(artifact("jar2", "lib/one.txt", "two", "lib/two.txt", "two", "relocated/data.json", "{}"));
+
+        Map<String, String> streamed = read(service.doPackage(
+            config(newArchive(), new File(out, "streamed.jar"), artifacts)));
+        Map<String, String> shrinkWrapped = read(new ShrinkWrapFatJarPackageService().doPackage(
+            config(newArchive(), new File(out, "shrinkwrapped.jar"), artifacts)));
+
+        assertThat(streamed.keySet()).containsExactlyInAnyOrderElementsOf(shrinkWrapped.keySet());
+        streamed.forEach((name, content) -> {
+            if (!name.equals("META-INF/MANIFEST.MF")) {
+                assertThat(content).as(name).isEqualTo(shrinkWrapped.get(name));
+            }
+        });
+        assertThat(streamed).containsEntry("shared.txt", "from classes")
+            .containsEntry("lib/one.txt", "one")
+            .containsEntry("data/data.json", "{}")
+            .containsKey("config/testconfig.yaml")
+            .doesNotContainKey("module-info.class");
+    }
+
+    @Test
+    public void testTheOutputDoesNotDependOnTheNumberOfThreads() throws IOException, PackagingException {
+        for (int i = 0; i < 50; i++) {
+            FileUtils.write(new File(classes, "org/acme/File" + i + ".txt"), StringUtils.repeat("content " + i, i),
+                StandardCharsets.UTF_8);
+        }
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        for (int i = 0; i < 10; i++) {
+            artifacts.add(artifact("jar" + i, "shared.txt", "from jar" + i, "lib/" + i + ".txt", "lib " + i,
+                "relocated/data.json", "{}"));
+        }
+
+        File single = service.doPackage(config(newArchive(), new File(out, "single.jar"), artifacts).setThreads(1));
+        File multiple = service.doPackage(config(newArchive(), new File(out, "multiple.jar"), artifacts)
+            .setThreads(4));
+
+        assertThat(entryNames(multiple)).containsExactlyElementsOf(entryNames(single));
+        assertThat(read(multiple)).isEqualTo(read(single)).containsEntry("shared.txt", "from jar0")
+            .containsEntry("org/acme/File42.txt", StringUtils.repeat("content 42", 42));
+    }
+
+    @Test
+    public void testIncrementalRebuildReusesUnchangedProjectFiles() throws IOException, PackagingException {
+        File unchanged = new File(classes, "org/acme/Unchanged.class");
+        File changed = new File(classes, "org/acme/Changed.class");
+        FileUtils.write(unchanged, "version 1", StandardCharsets.UTF_8);
+        FileUtils.write(changed, "version 1", StandardCharsets.UTF_8);
+        Set<Artifact> artifacts = Collections.singleton(artifact("jar1", "lib/one.txt", "one",
+            "relocated/data.json", "{}"));
+        File output = new File(out, "incremental.jar");
+
+        service.doPackage(config(newArchive(), output, artifacts).setIncremental(true));
+        assertThat(new File(out, "incremental.jar" + PackageIndex.SUFFIX)).isFile();
+
+        // Same size and modification time: the file is considered unchanged and copied from the previous archive.
+        long lastModified = unchanged.lastModified();
+        FileUtils.write(unchanged, "version 2", StandardCharsets.UTF_8);
+        assertThat(unchanged.setLastModified(lastModified)).isTrue();
+        FileUtils.write(changed, "version 2 - longer", StandardCharsets.UTF_8);
+        FileUtils.write(new File(classes, "org/acme/Added.class"), "added", StandardCharsets.UTF_8);
+
+        service.doPackage(config(newArchive(), output, artifacts).setIncremental(true));
+        assertThat(read(output)).containsEntry("org/acme/Unchanged.class", "version 1")
+            .containsEntry("org/acme/Changed.class", "version 2 - longer")
+            .containsEntry("org/acme/Added.class", "added")
+            .containsEntry("lib/one.txt", "one")
+            .containsEntry("data/data.json", "{}");
+
+        // Without the incremental mode, everything is rebuilt.
+        service.doPackage(config(newArchive(), output, artifacts));
+        assertThat(read(output)).containsEntry("org/acme/Unchanged.class", "version 2");
+    }
+
+    @Test
+    public void testIncrementalRebuildDetectsDependencyChanges() throws IOException, PackagingException {
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("jar1", "shared.txt", "from jar1", "relocated/data.json", "{}"));
+        File output = new File(out, "incremental.jar");
+
+        service.doPackage(config(newArchive(), output, artifacts).setIncremental(true));
+        Map<String, String> first = read(output);
+
+        service.doPackage(config(newArchive(), output, artifacts).setIncremental(true));
+        assertThat(read(output)).isEqualTo(first);
+
+        Set<Artifact> updated = new LinkedHashSet<>();
+        updated.add(artifact("jar0", "shared.txt", "from jar0", "lib/zero.txt", "zero"));
+        updated.addAll(artifacts);
+        service.doPackage(config(newArchive(), output, updated).setIncremental(true));
+        assertThat(read(output)).containsEntry("shared.txt", "from jar0")
+            .containsEntry("lib/zero.txt", "zero")
+            .containsEntry("data/data.json", "{}");
+
+        service.doPackage(config(newArchive(), output, artifacts).setIncremental(true));
+        assertThat(read(output)).isEqualTo(first);
+    }
+
+    @Test
+    public void testIncrementalRebuildIgnoresAnOutdatedIndex() throws IOException, PackagingException {
+        FileUtils.write(new File(classes, "org/acme/Main.class"), "version 1", StandardCharsets.UTF_8);
+        Set<Artifact> artifacts = Collections.singleton(artifact("jar1", "relocated/data.json", "{}"));
+        File output = new File(out, "incremental.jar");
+        service.doPackage(config(newArchive(), output, artifacts).setIncremental(true));
+
+        // The archive is rebuilt by another packager, the index no longer describes it.
+        new ShrinkWrapFatJarPackageService().doPackage(config(newArchive(), output, artifacts));
+        assertThat(output.setLastModified(output.lastModified() - 10_000)).isTrue();
+
+        service.doPackage(config(newArchive(), output, artifacts).setIncremental(true));
+        assertThat(read(output)).containsEntry("org/acme/Main.class", "version 1")
+            .containsEntry("data/data.json", "{}");
+    }
+
+    @Test
+    public void testDependencyEntriesAreCopiedWithoutRecompression() throws IOException, PackagingException {
+        File jar = new File(out, "raw.jar");
+        byte[] text = StringUtils.repeat("Some compressible content. ", 1000).getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+            zos.setLevel(Deflater.BEST_SPEED);
+            zos.putNextEntry(new ZipEntry("deflated.txt"));
+            zos.write(text);
+            zos.closeEntry();
+
+            ZipEntry stored = new ZipEntry("stored.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(text.length);
+            CRC32 crc = new CRC32();
+            crc.update(text);
+            stored.setCrc(crc.getValue());
+            zos.putNextEntry(stored);
+            zos.write(text);
+            zos.closeEntry();
+        }
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", "raw", "1.0", "compile", "jar", "", null);
+        artifact.setFile(jar);
+
+        Archive archive = new Archive();
+        archive.setIncludeClasses(false);
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.addFile(new FileItem().setSource("deflated.txt").setOutputDirectory("moved"));
+
+        File output = new File(out, "test-raw-copy.jar");
+        service.doPackage(config(archive, output, Collections.singleton(artifact)));
+
+        try (ZipFile source = new ZipFile(jar); ZipFile result = new ZipFile(output)) {
+            ZipEntry deflated = source.getEntry("deflated.txt");
+            ZipEntry moved = result.getEntry("moved/deflated.txt");
+            assertThat(moved.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(moved.getCrc()).isEqualTo(deflated.getCrc());
+            // Recompressing with the default level would produce a different size.
+            assertThat(moved.getCompressedSize()).isEqualTo(deflated.getCompressedSize());
+            try (InputStream is = result.getInputStream(moved)) {
+                assertThat(IOUtils.toByteArray(is)).isEqualTo(text);
+            }
+
+            ZipEntry stored = result.getEntry("stored.txt");
+            assertThat(stored.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(stored.getCompressedSize()).isEqualTo(text.length);
+            try (InputStream is = result.getInputStream(stored)) {
+                assertThat(IOUtils.toByteArray(is)).isEqualTo(text);
+            }
+        }
+    }
+
+    private Archive newArchive() {
+        Archive archive = new Archive();
+        archive.setDependencySets(Collections.singletonList(new DependencySet()));
+        archive.addFileSet(new FileSet()
+            .setOutputDirectory("config")
+            .addInclude("*.yaml")
+            .setDirectory("src/test/resources"));
+        archive.addFile(new FileItem()
+            .setSource("relocated/data.json")
+            .setOutputDirectory("data"));
+        archive.getManifest().put("Main-Class", "org.acme.Main");
+        return archive;
+    }
+
+    private static List<String> entryNames(File jar) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (JarFile file = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = file.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+        }
+        return names;
+    }
+
+    private PackageConfig config(Archive archive, File output, Set<Artifact> artifacts) {
+        return new PackageConfig()
+            .setProject(project)
+            .setMojo(mojo)
+            .setOutput(output)
+            .setArtifacts(artifacts)
+            .setArchive(archive);
+    }
+
+    private DefaultArtifact artifact(String name, String... content) {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+        for (int i = 0; i < content.length; i += 2) {
+            archive.add(new StringAsset(content[i + 1]), content[i]);
+        }
+        File jar = new File(out, name + ".jar");
+        archive.as(ZipExporter.class).exportTo(jar, true);
+
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", name, "1.0", "compile", "jar", "", null);
+        artifact.setFile(jar);
+        return artifact;
+    }
+
+    private static Map<String, String> read(File output) throws IOException {
+        assertThat(output).isFile();
+        Map<String, String> content = new LinkedHashMap<>();
+        try (JarFile jar = new JarFile(output)) {
+            for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    try (InputStream is = jar.getInputStream(entry)) {
+                        content.put(entry.getName(), IOUtils.toString(is, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+        return content;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *   Copyright (c) 2016-2021 Red Hat, Inc.
+ *
+ *   Red Hat licenses this file to you under the Apache License, version
+ *   2.0 (the "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied.  See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.components.impl.merge;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link AppendStrategy}.
+ */
+public class AppendStrategyTest {
+
+    private static final String NEWLINE = System.getProperty("line.separator");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    AppendStrategy strategy;
+    MavenProject project;
+
+    File actual;
+
+    @Before
+    public void setUp() throws Exception {
+        strategy = new AppendStrategy();
+        project = new MavenProject();
+        actual = temporaryFolder.newFile();
+    }
+
+    @Test
+    public void testDependenciesOnly() throws Exception {
+        List<Asset> deps = Arrays.asList(new StringAsset(String.join(NEWLINE, "a.A", "b.B", "a.A")),
+            new StringAsset(String.join("\n", "c.C", "b.B")));
+        test(null, deps, Arrays.asList("a.A", "b.B", "c.C"));
+    }
+
+    @Test
+    public void testLocalWithoutCombine() throws Exception {
+        Asset local = new StringAsset(String.join(NEWLINE, "a.A", "b.B", "a.A"));
+        test(local, Collections.singletonList(new StringAsset("c.C")), Arrays.asList("a.A", "b.B"));
+    }
+
+    @Test
+    public void testLocalWithCombine() throws Exception {
+        Asset local = new StringAsset(String.join(NEWLINE, "a.A", " ${combine} ", "d.D", "${COMBINE}", "c.C"));
+        List<Asset> deps = Arrays.asList(new StringAsset(String.join(NEWLINE, "b.B", "a.A")),
+            new StringAsset(String.join("\r\n", "c.C", "b.B")));
+        test(local, deps, Arrays.asList("a.A", "b.B", "c.C", "d.D"));
+    }
+
+    @Test
+    public void testEmptyLocalDropsTheDescriptor() throws Exception {
+        test(new StringAsset(""), Collections.singletonList(new StringAsset("a.A")), Collections.emptyList());
+    }
+
+    @Test
+    public void testManyLines() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            content.append("org.acme.Impl").append(i % 5_000).append(NEWLINE);
+        }
+        strategy.merge(project, null, Collections.singletonList(new StringAsset(content.toString())))
+            .writeTo(actual);
+
+        List<String> lines = FileUtils.readLines(actual, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(5_000).doesNotHaveDuplicates();
+        assertThat(lines.get(4_999)).isEqualTo("org.acme.Impl4999");
+    }
+
+    private void test(Asset local, List<Asset> deps, List<String> expectedLines) throws IOException {
+        strategy.merge(project, local, deps).writeTo(actual);
+        assertThat(FileUtils.readLines(actual, StandardCharsets.UTF_8)).isEqualTo(expectedLines);
+    }
+}
@@ -76,6 +76,16 @@ public class GroovyExtensionStrategyTest {
         test(local, null, expectedLines);
     }
 
+    @Test
+    public void testExtensionClasses() throws Exception {
+        assertThat(GroovyExtensionStrategy.isExtensionModule("/META-INF/groovy/org.codehaus.groovy.runtime.ExtensionModule")).isTrue();
+        assertThat(GroovyExtensionStrategy.isExtensionModule("META-INF/services/org.codehaus.groovy.runtime.ExtensionModule")).isTrue();
+        assertThat(GroovyExtensionStrategy.isExtensionModule("META-INF/services/java.sql.Driver")).isFalse();
+
+        Asset descriptor = new StringAsset(String.join(NEWLINE, "moduleName=acme", "staticExtensionClasses: a.A, b.B", "extensionClasses: c.C"));
+        assertThat(GroovyExtensionStrategy.extensionClasses(descriptor.openStream())).containsExactly("c.C", "a.A", "b.B");
+    }
+
     private void test(Asset local, List<Asset> deps, List<String> expectedLines) throws IOException {
         MergeResult merge = strategy.merge(project, local, deps);
         merge.writeTo(actual);
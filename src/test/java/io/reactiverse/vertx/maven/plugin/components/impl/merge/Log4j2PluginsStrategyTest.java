@@ -25,8 +25,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Map;
 
 import static java.util.Collections.enumeration;
@@ -79,4 +82,33 @@ public class Log4j2PluginsStrategyTest {
             .containsKeys("hellopatternconverter");
         assertThat(converters.get("hellopatternconverter").getClassName()).isEqualTo("io.vertx.example.HelloPatternConverter");
     }
+
+    @Test
+    public void testMergeIsIdenticalToThePluginCacheLoading() throws Exception {
+        URL local = getClass().getClassLoader().getResource("unit/merge/Log4j2Plugins.dat");
+        assertNotNull(local);
+        URL builtin = getClass().getClassLoader().getResource("META-INF/org/apache/logging/log4j/core/config/plugins/Log4j2Plugins.dat");
+        assertNotNull(builtin);
+
+        MergeResult result = strategy.merge(project, new UrlAsset(local), singletonList(new UrlAsset(builtin)));
+        result.writeTo(actual);
+
+        PluginCache cache = new PluginCache();
+        cache.loadCacheFiles(enumeration(Arrays.asList(local, builtin)));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        cache.writeCache(expected);
+
+        assertThat(Files.readAllBytes(actual.toPath())).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    public void testPluginClasses() throws Exception {
+        assertThat(Log4j2PluginsStrategy.isPluginCache("/META-INF/org/apache/logging/log4j/core/config/plugins/Log4j2Plugins.dat")).isTrue();
+        assertThat(Log4j2PluginsStrategy.isPluginCache("META-INF/services/Log4j2Plugins.dat")).isFalse();
+
+        URL local = getClass().getClassLoader().getResource("unit/merge/Log4j2Plugins.dat");
+        assertNotNull(local);
+        assertThat(Log4j2PluginsStrategy.pluginClasses(local.openStream()))
+            .contains("io.vertx.example.HelloPatternConverter");
+    }
 }
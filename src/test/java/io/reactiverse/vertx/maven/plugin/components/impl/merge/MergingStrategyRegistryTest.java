@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.components.impl.merge;
+
+import io.reactiverse.vertx.maven.plugin.mojos.MergingRule;
+import org.apache.maven.project.MavenProject;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MergingStrategyRegistryTest {
+
+    private static final String LOG4J2 = "/META-INF/org/apache/logging/log4j/core/config/plugins/Log4j2Plugins.dat";
+
+    @Test
+    public void testBuiltInStrategies() {
+        MergingStrategyRegistry registry = new MergingStrategyRegistry(null, null);
+        assertThat(registry.get(LOG4J2)).isInstanceOf(Log4j2PluginsStrategy.class);
+        assertThat(registry.get("org.codehaus.groovy.runtime.ExtensionModule"))
+            .isInstanceOf(GroovyExtensionStrategy.class);
+        assertThat(registry.get("/META-INF/services/org.acme.Spi")).isInstanceOf(AppendStrategy.class);
+    }
+
+    @Test
+    public void testComponentsAreMatchedByTheirPatterns() {
+        MergingStrategy json = new JsonStrategy();
+        MergingStrategyRegistry registry = new MergingStrategyRegistry(Collections.singletonMap("json", json), null);
+        assertThat(registry.get("/META-INF/native-image/org.acme/reflect-config.json")).isSameAs(json);
+        assertThat(registry.get("/META-INF/services/org.acme.Spi")).isInstanceOf(AppendStrategy.class);
+    }
+
+    @Test
+    public void testRulesTakePrecedence() {
+        MergingStrategy json = new JsonStrategy();
+        List<MergingRule> rules = Arrays.asList(
+            new MergingRule().setPattern("META-INF/native-image/**/reflect-config.json").setStrategy("append"),
+            new MergingRule().setPattern("META-INF/vertx/*.idx").setStrategy("json"));
+        MergingStrategyRegistry registry = new MergingStrategyRegistry(Collections.singletonMap("json", json), rules);
+        assertThat(registry.get("/META-INF/native-image/org.acme/reflect-config.json"))
+            .isInstanceOf(AppendStrategy.class);
+        assertThat(registry.get("/META-INF/native-image/org.acme/resource-config.json")).isSameAs(json);
+        assertThat(registry.get("/META-INF/vertx/codegen.idx")).isSameAs(json);
+    }
+
+    @Test
+    public void testUnknownStrategy() {
+        List<MergingRule> rules = Collections.singletonList(new MergingRule().setPattern("*.idx").setStrategy("nope"));
+        assertThatThrownBy(() -> new MergingStrategyRegistry(null, rules))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("nope");
+    }
+
+    private static class JsonStrategy implements MergingStrategy {
+
+        @Override
+        public List<String> getPatterns() {
+            return Collections.singletonList("META-INF/native-image/**/*.json");
+        }
+
+        @Override
+        public MergeResult merge(MavenProject project, Asset local, List<Asset> deps) {
+            return file -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.mojos;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CdsMojoTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File projectBuildDir;
+    private CdsMojo mojo;
+
+    @Before
+    public void setUp() throws Exception {
+        projectBuildDir = temporaryFolder.newFolder();
+        mojo = new CdsMojo();
+        mojo.project = new MavenProject();
+        Build build = new Build();
+        build.setFinalName("app");
+        mojo.project.setBuild(build);
+        mojo.projectBuildDir = projectBuildDir.getAbsolutePath();
+        mojo.trainingDuration = 30_000;
+        mojo.trainingDirectory = projectBuildDir;
+        mojo.launcherScript = true;
+    }
+
+    @Test
+    public void testMissingApplication() {
+        assertThatThrownBy(() -> mojo.execute())
+            .isInstanceOf(MojoExecutionException.class)
+            .hasMessageContaining("vertx:package must be executed before vertx:cds");
+    }
+
+    @Test
+    public void testArchiveAndLauncherScript() throws Exception {
+        JavaArchive jar = ShrinkWrap.create(JavaArchive.class);
+        jar.addClass(CdsTrainingMain.class);
+        jar.setManifest(new StringAsset("Manifest-Version: 1.0\nMain-Class: " + CdsTrainingMain.class.getName()
+            + "\n"));
+        jar.as(ZipExporter.class).exportTo(new File(projectBuildDir, "app.jar"));
+
+        mojo.execute();
+
+        assertThat(new File(projectBuildDir, "app.jsa")).isFile();
+        File script = new File(projectBuildDir, "app.sh");
+        assertThat(script).isFile().content()
+            .contains("-XX:SharedArchiveFile=\"$DIR/app.jsa\"")
+            .contains("-jar \"$DIR/app.jar\"");
+        assertThat(script.canExecute()).isTrue();
+    }
+}
+
+class CdsTrainingMain {
+
+    public static void main(String[] args) {
+        // Exits right away, the archive holds the classes loaded so far
+    }
+}
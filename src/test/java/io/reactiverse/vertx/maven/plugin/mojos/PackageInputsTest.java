@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.mojos;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackageInputsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File basedir;
+    private File classes;
+    private File dependency;
+    private Archive archive;
+
+    @Before
+    public void setUp() throws IOException {
+        basedir = temporaryFolder.newFolder("project");
+        classes = new File(basedir, "target/classes");
+        FileUtils.write(new File(classes, "org/acme/App.class"), "app", StandardCharsets.UTF_8);
+        FileUtils.write(new File(basedir, "src/conf/app.yaml"), "port: 8080", StandardCharsets.UTF_8);
+        dependency = temporaryFolder.newFile("dependency.jar");
+
+        archive = new Archive();
+        archive.setIncludeClasses(true);
+        archive.addFileSet(new FileSet().setDirectory("src/conf"));
+        archive.getManifest().put("Main-Class", "org.acme.App");
+        archive.getManifest().put("Build-Timestamp", "now");
+    }
+
+    @Test
+    public void testDigestTracksTheContentOfTheInputs() throws IOException {
+        String digest = inputs().digest();
+        assertThat(inputs().digest()).isEqualTo(digest);
+
+        // Recompiled, with the same content
+        File clazz = new File(classes, "org/acme/App.class");
+        assertThat(clazz.setLastModified(clazz.lastModified() - 60_000)).isTrue();
+        assertThat(inputs().digest()).isEqualTo(digest);
+
+        // The manifest entries changing on each build are ignored
+        archive.getManifest().put("Build-Timestamp", "later");
+        assertThat(inputs().digest()).isEqualTo(digest);
+
+        archive.getManifest().put("Main-Class", "org.acme.Other");
+        String mainClassChanged = inputs().digest();
+        assertThat(mainClassChanged).isNotEqualTo(digest);
+
+        FileUtils.write(new File(basedir, "src/conf/app.yaml"), "port: 8081", StandardCharsets.UTF_8);
+        String fileSetChanged = inputs().digest();
+        assertThat(fileSetChanged).isNotEqualTo(mainClassChanged);
+
+        FileUtils.write(clazz, "updated", StandardCharsets.UTF_8);
+        String classChanged = inputs().digest();
+        assertThat(classChanged).isNotEqualTo(fileSetChanged);
+
+        FileUtils.write(dependency, "updated", StandardCharsets.UTF_8);
+        assertThat(inputs().digest()).isNotEqualTo(classChanged);
+    }
+
+    @Test
+    public void testStoredDigest() throws IOException {
+        File jar = new File(temporaryFolder.getRoot(), "app.jar");
+        assertThat(PackageInputs.read(jar)).isNull();
+        writeJar(jar, null, "original");
+
+        PackageInputs.write(jar, "digest");
+        assertThat(PackageInputs.location(jar)).isFile();
+        assertThat(PackageInputs.read(jar)).isEqualTo("digest");
+
+        // An archive modified since the digest was stored is not trusted
+        writeJar(jar, null, "modified");
+        assertThat(PackageInputs.read(jar)).isNull();
+        PackageInputs.write(jar, "digest");
+        assertThat(PackageInputs.read(jar)).isEqualTo("digest");
+
+        PackageInputs.delete(jar);
+        assertThat(PackageInputs.read(jar)).isNull();
+    }
+
+    @Test
+    public void testStoredDigestWithClassPath() throws IOException {
+        File lib = new File(temporaryFolder.getRoot(), "lib/release/dependency.jar");
+        FileUtils.write(lib, "dependency", StandardCharsets.UTF_8);
+        File jar = new File(temporaryFolder.getRoot(), "app.jar");
+        writeJar(jar, "lib/release/dependency.jar", "original");
+
+        PackageInputs.write(jar, "digest");
+        assertThat(PackageInputs.read(jar)).isEqualTo("digest");
+
+        // The copied dependencies of the layered packager are part of the archive
+        assertThat(lib.delete()).isTrue();
+        assertThat(PackageInputs.read(jar)).isNull();
+    }
+
+    private static void writeJar(File jar, String classPath, String content) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest)) {
+            out.putNextEntry(new JarEntry("content.txt"));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    private PackageInputs inputs() {
+        DefaultArtifact artifact = new DefaultArtifact("org.acme", "dependency", "1.0", "compile", "jar", "", null);
+        artifact.setFile(dependency);
+        return new PackageInputs()
+            .configuration("packager", "fat-jar")
+            .archive(archive, basedir, classes, Collections.singleton("Build-Timestamp"))
+            .dependencies(Collections.singleton(artifact));
+    }
+}
@@ -1,8 +1,10 @@
 package io.reactiverse.vertx.maven.plugin.mojos;
 
+import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class PackageMojoTest {
 
@@ -14,4 +16,19 @@ public class PackageMojoTest {
         assertThat(mojo.skip).isTrue();
     }
 
+    @Test
+    public void testInvalidOutputTimestamp() {
+        PackageMojo mojo = new PackageMojo();
+        mojo.attach = true;
+        mojo.outputTimestamp = "yesterday";
+        assertThatThrownBy(mojo::execute)
+            .isInstanceOf(MojoExecutionException.class)
+            .hasMessageContaining("Invalid output timestamp `yesterday`");
+
+        mojo.outputTimestamp = "1970-01-01T00:00:00Z";
+        assertThatThrownBy(mojo::execute)
+            .isInstanceOf(MojoExecutionException.class)
+            .hasMessageContaining("it must be between");
+    }
+
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.reactiverse.vertx.maven.plugin.mojos;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayPlanTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPhasesOfTheChanges() {
+        File basedir = temporaryFolder.getRoot();
+        MavenProject project = new MavenProject();
+        project.setFile(new File(basedir, "pom.xml"));
+        project.addCompileSourceRoot(new File(basedir, "src/main/java").getAbsolutePath());
+        Resource resource = new Resource();
+        resource.setDirectory("src/main/resources");
+        project.addResource(resource);
+        ReplayPlan plan = ReplayPlan.of(project);
+
+        File source = new File(basedir, "src/main/java/org/acme/App.java");
+        File conf = new File(basedir, "src/main/resources/app.yaml");
+        File proto = new File(basedir, "src/main/proto/app.proto");
+
+        assertThat(plan.classify(source)).containsExactly(ReplayPlan.Kind.SOURCE);
+        assertThat(plan.classify(conf)).containsExactly(ReplayPlan.Kind.RESOURCE);
+        assertThat(plan.classify(proto)).containsExactly(ReplayPlan.Kind.OTHER);
+        assertThat(plan.classify(new File(basedir, "src/main/java"))).containsExactly(ReplayPlan.Kind.OTHER);
+
+        assertThat(plan.phases(Collections.singleton(source)))
+            .containsExactly("process-sources", "compile", "process-classes");
+        assertThat(plan.phases(Collections.singleton(conf))).containsExactly("process-resources");
+        assertThat(plan.phases(Arrays.asList(conf, source)))
+            .containsExactly("process-sources", "process-resources", "compile", "process-classes");
+        assertThat(plan.phases(Arrays.asList(source, proto))).containsExactlyElementsOf(MojoSpy.PHASES);
+        assertThat(plan.phases(Collections.emptySet())).containsExactlyElementsOf(MojoSpy.PHASES);
+    }
+
+    @Test
+    public void testOverlappingRoots() {
+        File basedir = temporaryFolder.getRoot();
+        File java = new File(basedir, "src/main/java");
+        ReplayPlan plan = new ReplayPlan(Collections.singleton(java), Collections.singleton(java));
+
+        File mapping = new File(java, "org/acme/Mapping.xml");
+        assertThat(plan.classify(mapping)).containsExactly(ReplayPlan.Kind.SOURCE, ReplayPlan.Kind.RESOURCE);
+        assertThat(plan.phases(Collections.singleton(mapping)))
+            .containsExactly("process-sources", "process-resources", "compile", "process-classes");
+    }
+}
@@ -27,8 +27,15 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -122,4 +129,87 @@ public class FileChangesHelperTest {
         assertTrue(helper.foundChanges());
         assertFalse(helper.foundChanges());
     }
+
+    @Test
+    public void shouldAwaitChanges() throws Exception {
+        helper = new FileChangesHelper(log, temporaryFolder.getRoot(), null, null);
+        assertFalse(helper.awaitChanges(10));
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                FileUtils.write(nestedFile, "Changed", StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        long begin = System.nanoTime();
+        writer.start();
+        assertTrue(helper.awaitChanges(30_000));
+        writer.join();
+        // Notified by the file system, way before the timeout
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < 10_000);
+        assertFalse(helper.foundChanges());
+    }
+
+    @Test
+    public void shouldDetectChangesInCreatedDirectories() throws Exception {
+        helper = new FileChangesHelper(log, temporaryFolder.getRoot(), Collections.singletonList("parent/**"), null);
+
+        File directory = new File(temporaryFolder.getRoot(), "parent/created/nested");
+        assertTrue(directory.mkdirs());
+        assertTrue(helper.foundChanges());
+        assertFalse(helper.foundChanges());
+
+        File file = new File(directory, "file.txt");
+        FileUtils.write(file, "Created", StandardCharsets.UTF_8);
+        assertTrue(helper.foundChanges());
+        assertFalse(helper.foundChanges());
+
+        FileUtils.write(file, "Changed", StandardCharsets.UTF_8);
+        assertTrue(helper.foundChanges());
+        assertFalse(helper.foundChanges());
+    }
+
+    @Test
+    public void shouldDetectContentOfCreatedDirectories() throws Exception {
+        helper = new FileChangesHelper(log, temporaryFolder.getRoot(), Collections.singletonList("parent/**"), null);
+
+        // Moved in at once, so the content exists before the directory is registered
+        File staged = new File(temporaryFolder.getRoot(), "staging/moved");
+        File file = new File(staged, "nested/file.txt");
+        FileUtils.write(file, "Created", StandardCharsets.UTF_8);
+        File directory = new File(temporaryFolder.getRoot(), "parent/moved");
+        Files.move(staged.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        Set<File> changes = helper.awaitChangeSet(30_000, 200);
+        assertThat(changes).contains(directory, new File(directory, "nested"), new File(directory, "nested/file.txt"));
+    }
+
+    @Test
+    public void shouldCoalesceBurstsOfChanges() throws Exception {
+        helper = new FileChangesHelper(log, temporaryFolder.getRoot(), null, null);
+        assertTrue(helper.awaitChangeSet(10, 10).isEmpty());
+
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            files.add(new File(temporaryFolder.getRoot(), "parent/child/file" + i + ".txt"));
+        }
+        Thread writer = new Thread(() -> {
+            try {
+                for (File file : files) {
+                    FileUtils.write(file, "Created", StandardCharsets.UTF_8);
+                    Thread.sleep(50);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        Set<File> changes = helper.awaitChangeSet(30_000, 1_000);
+        writer.join();
+
+        assertThat(changes).containsAll(files);
+        assertTrue(helper.awaitChangeSet(10, 10).isEmpty());
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HotReloadControlTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSupportedArguments() {
+        File classes = new File("target/classes");
+        new HotReloadShim(Arrays.asList("org.acme.MainVerticle", "-options", "\"/tmp/my options.json\"",
+            "-conf", "{}", "--instances", "2", "-worker"), Collections.singletonList(classes));
+
+        assertThatThrownBy(() -> new HotReloadShim(Collections.emptyList(), Collections.singletonList(classes)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HotReloadShim(Arrays.asList("org.acme.MainVerticle", "-cluster"),
+            Collections.singletonList(classes)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("-cluster");
+        assertThatThrownBy(() -> new HotReloadShim(Arrays.asList("org.acme.MainVerticle", "-instances", "many"),
+            Collections.singletonList(classes)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        try (HotReloadControl control = new HotReloadControl()) {
+            CompletableFuture<Void> shim = CompletableFuture.runAsync(() -> {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), control.port());
+                     BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                     PrintWriter writer = new PrintWriter(
+                         new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+                    writer.println(control.token());
+                    assertThat(reader.readLine()).isEqualTo(HotReloadShim.RELOAD);
+                    writer.println(HotReloadShim.OK);
+                    assertThat(reader.readLine()).isEqualTo(HotReloadShim.RELOAD);
+                    writer.println(HotReloadShim.FAILED + " java.lang.ClassNotFoundException: org.acme.Main");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            assertThat(control.reload(5000)).isNull();
+            assertThat(control.reload(5000)).isEqualTo("java.lang.ClassNotFoundException: org.acme.Main");
+            shim.join();
+
+            // The shim is gone, the application must be restarted
+            assertThatThrownBy(() -> control.reload(5000)).isInstanceOf(IOException.class);
+            control.disconnect();
+            assertThatThrownBy(() -> control.reload(100)).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    public void testRejectsConnectionsWithoutToken() throws Exception {
+        try (HotReloadControl control = new HotReloadControl()) {
+            CompletableFuture<Void> shims = CompletableFuture.runAsync(() -> {
+                // Another local process connects first
+                try (Socket intruder = new Socket(InetAddress.getLoopbackAddress(), control.port());
+                     PrintWriter writer = new PrintWriter(
+                         new OutputStreamWriter(intruder.getOutputStream(), StandardCharsets.UTF_8), true)) {
+                    writer.println("guessed");
+                    assertThat(intruder.getInputStream().read()).isEqualTo(-1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), control.port());
+                     BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                     PrintWriter writer = new PrintWriter(
+                         new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+                    writer.println(control.token());
+                    assertThat(reader.readLine()).isEqualTo(HotReloadShim.RELOAD);
+                    writer.println(HotReloadShim.OK);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            assertThat(control.reload(5000)).isNull();
+            shims.join();
+        }
+    }
+
+    @Test
+    public void testExtractShim() throws IOException {
+        File directory = HotReloadControl.extractShim(temporaryFolder.getRoot());
+        assertThat(new File(directory, "io/reactiverse/vertx/maven/plugin/utils/HotReloadShim.class")).isFile();
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluator;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IncrementalCompilerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File sources;
+    private File classes;
+    private IncrementalCompiler compiler;
+    private long time = System.currentTimeMillis() - 60_000;
+
+    @Before
+    public void setUp() throws IOException {
+        sources = temporaryFolder.newFolder("src");
+        classes = new File(temporaryFolder.getRoot(), "classes");
+        compiler = new IncrementalCompiler(new SystemStreamLog(), ToolProvider.getSystemJavaCompiler(), classes);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        compiler.close();
+    }
+
+    @Test
+    public void testRecompilesTheChangedSourcesAndTheirDependents() throws Exception {
+        File a = write("org/acme/A.java", "package org.acme; public class A { public String hello() { return \"a\"; } }");
+        File b = write("org/acme/B.java", "package org.acme; public class B { String hello() { return new A().hello(); } }");
+        File c = write("org/acme/C.java", "package org.acme; public class C { class Inner {} }");
+        File main = write("org/acme/Main.java", "package org.acme; public class Main { B b; }");
+
+        assertThat(compile()).containsExactlyInAnyOrder(a, b, c, main);
+        assertThat(new File(classes, "org/acme/C$Inner.class")).isFile();
+        assertThat(compile()).isEmpty();
+
+        // Main depends on A through B
+        write("org/acme/A.java", "package org.acme; public class A { public String hello() { return \"A\"; } }");
+        assertThat(compile()).containsExactlyInAnyOrder(a, b, main);
+
+        write("org/acme/C.java", "package org.acme; public class C { }");
+        assertThat(compile()).containsExactly(c);
+        assertThat(new File(classes, "org/acme/C$Inner.class")).doesNotExist();
+
+        assertThat(c.delete()).isTrue();
+        assertThat(compile()).isEmpty();
+        assertThat(new File(classes, "org/acme/C.class")).doesNotExist();
+    }
+
+    @Test
+    public void testRecompilesEverythingWhenAConstantChanges() throws Exception {
+        File constants = write("org/acme/Constants.java", "package org.acme; public class Constants { public static final String NAME = \"a\"; }");
+        File user = write("org/acme/User.java", "package org.acme; public class User { String name = Constants.NAME; }");
+        File other = write("org/acme/Other.java", "package org.acme; public class Other { private static final int SIZE = 1; }");
+        assertThat(compile()).containsExactlyInAnyOrder(constants, user, other);
+
+        write("org/acme/Constants.java", "package org.acme; public class Constants { public static final String NAME = \"b\"; }");
+        assertThat(compile()).containsExactlyInAnyOrder(constants, user, other);
+
+        // Private constants are not inlined elsewhere
+        write("org/acme/Other.java", "package org.acme; public class Other { private static final int SIZE = 2; }");
+        assertThat(compile()).containsExactly(other);
+    }
+
+    @Test
+    public void testRetriesTheSourcesThatFailedToCompile() throws Exception {
+        File a = write("org/acme/A.java", "package org.acme; public class A { }");
+        File b = write("org/acme/B.java", "package org.acme; public class B { Missing missing; }");
+        assertThatThrownBy(this::compile).isInstanceOf(MojoExecutionException.class);
+        assertThatThrownBy(this::compile).isInstanceOf(MojoExecutionException.class);
+
+        write("org/acme/B.java", "package org.acme; public class B { A a; }");
+        assertThat(compile()).containsExactlyInAnyOrder(a, b);
+        assertThat(compile()).isEmpty();
+    }
+
+    @Test
+    public void testOptions() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("${project.build.sourceEncoding}", "UTF-8");
+        properties.put("${maven.compiler.source}", "11");
+        properties.put("${maven.compiler.target}", "11");
+        ExpressionEvaluator evaluator = mock(ExpressionEvaluator.class);
+        when(evaluator.evaluate(anyString())).thenAnswer(invocation -> {
+            String expression = invocation.getArgument(0);
+            return expression.startsWith("${") ? properties.get(expression) : expression;
+        });
+
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom parameters = new Xpp3Dom("parameters");
+        parameters.setValue("true");
+        configuration.addChild(parameters);
+        Xpp3Dom compilerArgs = new Xpp3Dom("compilerArgs");
+        Xpp3Dom arg = new Xpp3Dom("arg");
+        arg.setValue("-Xlint:all");
+        compilerArgs.addChild(arg);
+        configuration.addChild(compilerArgs);
+
+        assertThat(IncrementalCompiler.options(configuration, evaluator))
+            .containsExactly("-encoding", "UTF-8", "-source", "11", "-target", "11", "-g", "-parameters",
+                "-Xlint:all");
+
+        properties.put("${maven.compiler.release}", "17");
+        properties.put("${maven.compiler.debug}", "false");
+        assertThat(IncrementalCompiler.options(null, evaluator))
+            .containsExactly("-encoding", "UTF-8", "--release", "17");
+    }
+
+    @Test
+    public void testDetectsAnnotationProcessors() throws IOException {
+        File processor = temporaryFolder.newFolder("processor");
+        FileUtils.write(new File(processor, "META-INF/services/javax.annotation.processing.Processor"),
+            "org.acme.Processor", StandardCharsets.UTF_8);
+        List<File> classpath = Collections.singletonList(processor);
+
+        assertThat(IncrementalCompiler.usesAnnotationProcessors(null, Collections.emptyList(), Collections.emptyList()))
+            .isFalse();
+        assertThat(IncrementalCompiler.usesAnnotationProcessors(null, Collections.emptyList(), classpath)).isTrue();
+        assertThat(IncrementalCompiler.usesAnnotationProcessors(null, Collections.singletonList("-proc:none"),
+            classpath)).isFalse();
+    }
+
+    @Test
+    public void testDetectsUnsupportedConfigurations() throws Exception {
+        assertThat(IncrementalCompiler.isModular(Collections.singletonList(sources))).isFalse();
+        write("module-info.java", "module org.acme { }");
+        assertThat(IncrementalCompiler.isModular(Collections.singletonList(sources))).isTrue();
+
+        Map<String, String> properties = new HashMap<>();
+        ExpressionEvaluator evaluator = mock(ExpressionEvaluator.class);
+        when(evaluator.evaluate(anyString())).thenAnswer(invocation -> {
+            String expression = invocation.getArgument(0);
+            return expression.startsWith("${") ? properties.get(expression) : expression;
+        });
+
+        assertThat(IncrementalCompiler.unsupportedParameter(null, evaluator)).isNull();
+        assertThat(IncrementalCompiler.unsupportedParameter(configuration("compilerId", "javac"), evaluator)).isNull();
+        assertThat(IncrementalCompiler.unsupportedParameter(configuration("fork", "false"), evaluator)).isNull();
+        assertThat(IncrementalCompiler.unsupportedParameter(configuration("compilerArgument", "-Xlint"), evaluator))
+            .isEqualTo("compilerArgument");
+        assertThat(IncrementalCompiler.unsupportedParameter(configuration("compilerId", "eclipse"), evaluator))
+            .isEqualTo("compilerId");
+        assertThat(IncrementalCompiler.unsupportedParameter(configuration("fork", "true"), evaluator))
+            .isEqualTo("fork");
+        assertThat(IncrementalCompiler.unsupportedParameter(configuration("executable", "/opt/jdk/bin/javac"),
+            evaluator)).isEqualTo("executable");
+
+        Xpp3Dom excludes = configuration("excludes", null);
+        Xpp3Dom exclude = new Xpp3Dom("exclude");
+        exclude.setValue("**/Legacy.java");
+        excludes.getChild("excludes").addChild(exclude);
+        assertThat(IncrementalCompiler.unsupportedParameter(excludes, evaluator)).isEqualTo("excludes");
+
+        properties.put("${maven.main.skip}", "true");
+        assertThat(IncrementalCompiler.unsupportedParameter(null, evaluator)).isEqualTo("skipMain");
+    }
+
+    private static Xpp3Dom configuration(String name, String value) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom child = new Xpp3Dom(name);
+        child.setValue(value);
+        configuration.addChild(child);
+        return configuration;
+    }
+
+    private Set<File> compile() throws Exception {
+        return compiler.compile(Collections.singletonList(sources), Collections.emptyList(), Collections.emptyList());
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(sources, path).getAbsoluteFile();
+        FileUtils.write(file, content, StandardCharsets.UTF_8);
+        // Distinct modification times, whatever the file system resolution
+        time += 2000;
+        assertThat(file.setLastModified(time)).isTrue();
+        return file;
+    }
+}
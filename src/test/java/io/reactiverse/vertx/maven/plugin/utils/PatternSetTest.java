@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 The Vert.x Community.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.reactiverse.vertx.maven.plugin.utils;
+
+import org.codehaus.plexus.util.SelectorUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PatternSetTest {
+
+    private static final List<String> VALUES = Arrays.asList("", "/", "a", "/a", "/ab", "/aba", "a/b", "/a/b",
+        "/a/b/", "a//b", "/META-INF/MANIFEST.MF", "/META-INF/SIGN.SF", "/META-INF/versions/9/module-info.class",
+        "/org/acme/Main.class", "org/acme/Main.class", "/org/CVS/Entries", "/org/CVS", "src/main/java/A.java",
+        "src/main/resources/app.json", "config.yaml", "conf/app.json", "/META-INF/services/org.acme.Spi",
+        "META-INF/services/org.acme.Spi");
+
+    private static final List<String> PATTERNS = Arrays.asList("", "*", "**", "/a", "a", "/a*", "/a*a", "/a?", "?a",
+        "/a*b*a", "**/*.class", "/org/*/Main.class", "/org/**/Main.class", "org/**", "**/CVS/**", "**/CVS",
+        "/META-INF/*.?F", "*.yaml", "/*/app.*", "*/app.*", "src/**/*.java", "**/resources/**", "**/a/**/b",
+        "/**/b", "a/**/**/b", "**/**", "/META-INF/services/*", "META-INF/services/*", "%ant[**/*.java]",
+        "%regex[.*\\.json]");
+
+    @Test
+    public void testSameResultsAsMatch() {
+        for (String pattern : PATTERNS) {
+            PatternSet set = PatternSet.of(Collections.singletonList(pattern));
+            for (String value : VALUES) {
+                assertThat(set.matches(value)).as(pattern + " / " + value)
+                    .isEqualTo(SelectorUtils.match(pattern, value));
+            }
+        }
+    }
+
+    @Test
+    public void testSameResultsAsMatchPath() {
+        for (String pattern : PATTERNS) {
+            PatternSet set = PatternSet.ofPaths(Collections.singletonList(pattern), "/");
+            for (String value : VALUES) {
+                assertThat(set.matches(value)).as(pattern + " / " + value)
+                    .isEqualTo(SelectorUtils.matchPath(pattern, value, "/", true));
+            }
+        }
+    }
+
+    @Test
+    public void testSetMatchesIfAnyPatternMatches() {
+        PatternSet set = PatternSet.of(Arrays.asList("/META-INF/MANIFEST.MF", "**/*.class", "*.yaml"));
+        assertThat(set.isEmpty()).isFalse();
+        assertThat(set.matches("/META-INF/MANIFEST.MF")).isTrue();
+        assertThat(set.matches("/org/acme/Main.class")).isTrue();
+        assertThat(set.matches("config.yaml")).isTrue();
+        assertThat(set.matches("config.json")).isFalse();
+
+        assertThat(PatternSet.of(null).isEmpty()).isTrue();
+        assertThat(PatternSet.of(null).matches("a")).isFalse();
+        assertThat(PatternSet.ofPaths(Collections.emptyList(), "/").isEmpty()).isTrue();
+    }
+}